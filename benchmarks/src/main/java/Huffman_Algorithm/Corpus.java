@@ -0,0 +1,83 @@
+package Huffman_Algorithm;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Inputs for the benchmarks. They are generated from a fixed seed, so every run and every fork measures the same
+ * bytes without shipping sample files.
+ */
+public enum Corpus {
+    // English like text, words drawn with a Zipf like distribution
+    TEXT {
+        @Override
+        void fill(byte[] data, Random random) {
+            String[] words = ("the of and to in is that for it as was with be by on not he this are or his from at "
+                    + "which but have an they you were her she there been one all we their has would when if so no "
+                    + "compression huffman symbol frequency table decoder encoder block stream buffer file length "
+                    + "canonical code tree node window channel index header payload bits bytes").split(" ");
+            int position = 0;
+            int wordsOnLine = 0;
+            while (position < data.length) {
+                // index ~ 1 / rank
+                int rank = (int) Math.min(words.length - 1, Math.exp(random.nextDouble() * Math.log(words.length)) - 1);
+                byte[] word = words[rank].getBytes(StandardCharsets.US_ASCII);
+                for (int i = 0; i < word.length && position < data.length; i++) {
+                    data[position++] = word[i];
+                }
+                if (position < data.length) {
+                    data[position++] = (byte) (++wordsOnLine % 12 == 0 ? '\n' : random.nextInt(10) == 0 ? ',' : ' ');
+                }
+            }
+        }
+    },
+    // fixed size records like a database page or an executable: counters, small numbers, tags and zero padding
+    BINARY {
+        @Override
+        void fill(byte[] data, Random random) {
+            int id = 0;
+            for (int position = 0; position < data.length; ) {
+                byte[] record = new byte[16];
+                record[0] = (byte) id;
+                record[1] = (byte) (id >>> 8);
+                record[2] = (byte) (id >>> 16);
+                record[4] = (byte) random.nextInt(16);
+                record[5] = (byte) (random.nextGaussian() * 20);
+                record[8] = (byte) (0x40 + random.nextInt(8));
+                id++;
+                for (int i = 0; i < record.length && position < data.length; i++) {
+                    data[position++] = record[i];
+                }
+            }
+        }
+    },
+    // incompressible
+    RANDOM {
+        @Override
+        void fill(byte[] data, Random random) {
+            random.nextBytes(data);
+        }
+    },
+    // low entropy: a few byte values dominate and come in runs
+    SKEWED {
+        @Override
+        void fill(byte[] data, Random random) {
+            for (int position = 0; position < data.length; ) {
+                // geometric distribution, value k with probability 2^-(k+1)
+                byte value = (byte) Integer.numberOfTrailingZeros(random.nextInt() | (1 << 16));
+                int run = 1 + random.nextInt(8);
+                for (int i = 0; i < run && position < data.length; i++) {
+                    data[position++] = value;
+                }
+            }
+        }
+    };
+
+    abstract void fill(byte[] data, Random random);
+
+    byte[] generate(int size) {
+        byte[] data = new byte[size];
+        fill(data, new Random(20010888));
+        return data;
+    }
+}
@@ -0,0 +1,150 @@
+package Huffman_Algorithm;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks every phase of FileHandler.compress and decompress on its own, and the whole round trip through files.
+ * Phases that process the input report their throughput in MB/s through the megabytes counter, run with -prof gc
+ * to get the allocation rate as well.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// the Vector API histogram kernel is only used when its incubator module is added, -Dhuffman.scalarHistogram=true in
+// -jvmArgsAppend measures the scalar kernel instead
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class PhaseBenchmark {
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8"})
+    public int n;
+
+    @Param({"TEXT", "BINARY", "RANDOM", "SKEWED"})
+    public Corpus corpus;
+
+    @Param({"4"})
+    public int sizeMB;
+
+    private final FileHandler fileHandler = new FileHandler();
+    private Path directory;
+    private String inputPath;
+    private byte[] input;
+
+    private Histogram histogram;
+    private HuffmanTable table;
+    private EncodeTable encodeTable;
+    private TableDecoder decoder;
+    private byte[] encoded;
+    private int symbolCount;
+    private int lastSymbolBytes;
+    private byte[] decoded;
+
+    /**
+     * Megabytes of original data processed, reported per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+
+        void add(long bytes) {
+            megabytes += bytes / (1024.0 * 1024.0);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        input = corpus.generate(sizeMB * 1024 * 1024);
+        directory = Files.createTempDirectory("huffman-benchmark");
+        inputPath = directory.resolve(corpus.name().toLowerCase() + ".bin").toString();
+        Files.write(Path.of(inputPath), input);
+
+        // run every phase once, its result is the input of the next phase
+        fileHandler.setNumberOfBytes(n);
+        histogram = fileHandler.frequencyTable(inputPath);
+        table = fileHandler.buildHuffmanTree(histogram);
+        encodeTable = fileHandler.buildHuffmanCodeTable(table);
+        decoder = table.decoder();
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        BitWriter bitWriter = new BitWriter(payload);
+        encodeTable.encode(input, 0, input.length, bitWriter);
+        bitWriter.flush();
+        encoded = payload.toByteArray();
+        symbolCount = (input.length + n - 1) / n;
+        lastSymbolBytes = input.length - (symbolCount - 1) * n;
+        decoded = new byte[symbolCount * n];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Histogram frequencyTable(Throughput throughput) {
+        throughput.add(input.length);
+        return fileHandler.frequencyTable(inputPath);
+    }
+
+    @Benchmark
+    public HuffmanTable buildHuffmanTree() {
+        return fileHandler.buildHuffmanTree(histogram);
+    }
+
+    @Benchmark
+    public EncodeTable buildHuffmanCodeTable() {
+        return fileHandler.buildHuffmanCodeTable(table);
+    }
+
+    @Benchmark
+    public long encode(Throughput throughput) throws IOException {
+        BitWriter bitWriter = new BitWriter(OutputStream.nullOutputStream());
+        encodeTable.encode(input, 0, input.length, bitWriter);
+        bitWriter.flush();
+        throughput.add(input.length);
+        return bitWriter.bitsWritten();
+    }
+
+    @Benchmark
+    public int decode(Throughput throughput) throws IOException {
+        BitReader bitReader = new BitReader(encoded, 0, encoded.length);
+        throughput.add(input.length);
+        return decoder.decode(bitReader, decoded, 0, symbolCount, lastSymbolBytes);
+    }
+
+    /**
+     * compress and decompress through files, including the header and all I/O.
+     */
+    @Benchmark
+    public void roundTrip(Throughput throughput) {
+        PrintStream out = System.out;
+        // compress and decompress print the ratio on every call
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            fileHandler.compress(inputPath, n);
+            fileHandler.decompress(directory.resolve("20010888." + n + "." + Path.of(inputPath).getFileName() + ".hc")
+                    .toString());
+        } finally {
+            System.setOut(out);
+        }
+        throughput.add(input.length);
+    }
+}
@@ -0,0 +1,162 @@
+package Huffman_Algorithm;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decompresses a stream written by AdaptiveHuffmanOutputStream, updating the same model as the writer.
+ * It never waits for input it does not need: read returns as soon as at least one byte could be decoded from the
+ * input available so far. It may read ahead of the end of the compressed stream in the underlying stream.
+ */
+public class AdaptiveHuffmanInputStream extends FilterInputStream {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private int numberOfBytes;
+    private AdaptiveModel model;
+    private BitReader bitReader;
+    private final byte[] block = new byte[CHUNK_SIZE];
+    private int blockLength;
+    private int position;
+    private boolean endOfStream;
+
+    public AdaptiveHuffmanInputStream(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    // the format byte and the number of bytes per symbol were already read by the caller
+    AdaptiveHuffmanInputStream(InputStream inputStream, int numberOfBytes) {
+        super(inputStream);
+        this.numberOfBytes = numberOfBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == blockLength && !decodeSymbols()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == blockLength && !decodeSymbols()) {
+            return -1;
+        }
+        int count = Math.min(len, blockLength - position);
+        System.arraycopy(block, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return blockLength - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void readHeader() throws IOException {
+        if (numberOfBytes == 0) {
+            int format = in.read();
+            if (format != FileHandler.ADAPTIVE) {
+                throw new IOException("Not an adaptive Huffman stream, format: " + format);
+            }
+            numberOfBytes = in.read();
+        }
+        if (numberOfBytes < 1 || numberOfBytes > SymbolKey.MAX_BYTES) {
+            throw new IOException("Invalid number of bytes per symbol: " + numberOfBytes);
+        }
+        int rebuildInterval = 0;
+        for (int i = 0; i < 4; i++) {
+            int byteValue = in.read();
+            if (byteValue == -1) {
+                throw new EOFException("Unexpected end of stream");
+            }
+            rebuildInterval = (rebuildInterval << 8) | byteValue;
+        }
+        if (rebuildInterval <= 0) {
+            throw new IOException("Invalid rebuild interval: " + rebuildInterval);
+        }
+        model = new AdaptiveModel(numberOfBytes, rebuildInterval, true);
+        bitReader = new BitReader(in, new byte[CHUNK_SIZE]);
+    }
+
+    // decodes the symbols that are available, waiting for input only when none is
+    private boolean decodeSymbols() throws IOException {
+        if (endOfStream) {
+            return false;
+        }
+        if (model == null) {
+            readHeader();
+        }
+        blockLength = 0;
+        position = 0;
+        while (blockLength + numberOfBytes <= block.length) {
+            bitReader.fetch(false);
+            int index = model.decoder().tryDecodeIndex(bitReader);
+            if (index < 0) {
+                if (blockLength > 0) {
+                    break;
+                }
+                if (!bitReader.fetch(true)) {
+                    throw new EOFException("Unexpected end of compressed stream");
+                }
+                continue;
+            }
+
+            int special = model.special(index);
+            if (special == AdaptiveModel.FLUSH) {
+                bitReader.alignToByte();
+            } else if (special == AdaptiveModel.END) {
+                int remaining = (int) readBits(3);
+                for (int i = 0; i < remaining; i++) {
+                    block[blockLength++] = (byte) readBits(8);
+                }
+                endOfStream = true;
+                break;
+            } else {
+                long key = special == AdaptiveModel.ESCAPE ? readRaw() : model.key(index);
+                SymbolKey.unpack(key, numberOfBytes, block, blockLength);
+                blockLength += numberOfBytes;
+                model.update(key, special == AdaptiveModel.ESCAPE);
+            }
+        }
+        return blockLength > 0;
+    }
+
+    private long readRaw() throws IOException {
+        long key = 0;
+        for (int i = 0; i < numberOfBytes; i++) {
+            key = (key << 8) | readBits(8);
+        }
+        return key;
+    }
+
+    private long readBits(int bits) throws IOException {
+        while (bitReader.bitCount < bits) {
+            if (!bitReader.fetch(true)) {
+                throw new EOFException("Unexpected end of compressed stream");
+            }
+        }
+        long value = bitReader.bitBuffer & ((1L << bits) - 1);
+        bitReader.skip(bits);
+        return value;
+    }
+}
@@ -0,0 +1,152 @@
+package Huffman_Algorithm;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Single pass Huffman compression: the code adapts to the data as it is written (see AdaptiveModel), so there is
+ * no first pass and no code table, and compressed bytes are written as soon as they are complete.
+ * flush() pushes out everything written so far, including a partial byte, so the reader can decode it right away.
+ * <p>
+ * Stream format: the ADAPTIVE format byte, the number of bytes per symbol and the rebuild interval in symbols,
+ * then the coded symbols. After the END code, 3 bits give the length of a trailing partial symbol followed by
+ * its bytes.
+ */
+public class AdaptiveHuffmanOutputStream extends FilterOutputStream {
+    public static final int DEFAULT_REBUILD_INTERVAL = 32 * 1024;
+
+    private final int numberOfBytes;
+    private final int rebuildInterval;
+    private final AdaptiveModel model;
+    private final BitWriter bitWriter;
+    private final byte[] pending;
+    private int pendingLength;
+    private boolean finished;
+
+    public AdaptiveHuffmanOutputStream(OutputStream outputStream, int numberOfBytes) {
+        this(outputStream, numberOfBytes, DEFAULT_REBUILD_INTERVAL);
+    }
+
+    /**
+     * @param rebuildInterval number of bytes between two rebuilds of the code
+     */
+    public AdaptiveHuffmanOutputStream(OutputStream outputStream, int numberOfBytes, int rebuildInterval) {
+        super(outputStream);
+        if (numberOfBytes < 1 || numberOfBytes > SymbolKey.MAX_BYTES) {
+            throw new IllegalArgumentException("Number of bytes per symbol must be between 1 and " + SymbolKey.MAX_BYTES);
+        }
+        if (rebuildInterval < numberOfBytes) {
+            throw new IllegalArgumentException("Rebuild interval must be at least " + numberOfBytes + " bytes");
+        }
+        this.numberOfBytes = numberOfBytes;
+        this.rebuildInterval = rebuildInterval / numberOfBytes;
+        this.model = new AdaptiveModel(numberOfBytes, this.rebuildInterval, false);
+        this.bitWriter = new BitWriter(outputStream);
+        this.pending = new byte[numberOfBytes];
+    }
+
+    private void writeHeader() throws IOException {
+        // written on the first bit so the constructor does not need to throw
+        if (bitWriter.bitsWritten() == 0) {
+            int interval = rebuildInterval;
+            bitWriter.write(FileHandler.ADAPTIVE, 8);
+            bitWriter.write(numberOfBytes, 8);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bitWriter.write((interval >>> shift) & 0xFF, 8);
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        pending[pendingLength++] = (byte) b;
+        if (pendingLength == numberOfBytes) {
+            writeSymbol(SymbolKey.pack(pending, 0, numberOfBytes, numberOfBytes));
+            pendingLength = 0;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        int end = off + len;
+        while (off < end && pendingLength > 0) {
+            write(b[off++]);
+        }
+        for (; off + numberOfBytes <= end; off += numberOfBytes) {
+            writeSymbol(SymbolKey.pack(b, off, numberOfBytes, end));
+        }
+        while (off < end) {
+            write(b[off++]);
+        }
+    }
+
+    private void writeSymbol(long key) throws IOException {
+        writeHeader();
+        int index = model.indexOf(key);
+        if (index >= 0) {
+            bitWriter.write(model.code(index), model.length(index));
+        } else {
+            writeSpecial(AdaptiveModel.ESCAPE);
+            writeRaw(key, numberOfBytes);
+        }
+        model.update(key, index < 0);
+    }
+
+    private void writeSpecial(int special) throws IOException {
+        int index = model.specialIndex(special);
+        bitWriter.write(model.code(index), model.length(index));
+    }
+
+    private void writeRaw(long key, int bytes) throws IOException {
+        for (int shift = 8 * (bytes - 1); shift >= 0; shift -= 8) {
+            bitWriter.write((key >>> shift) & 0xFF, 8);
+        }
+    }
+
+    /**
+     * Writes a FLUSH code, pads to a byte and pushes every byte written so far to the underlying stream.
+     * A partial symbol is kept until it is complete.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeHeader();
+        writeSpecial(AdaptiveModel.FLUSH);
+        bitWriter.alignToByte();
+        bitWriter.flushWholeBytes();
+    }
+
+    /**
+     * Writes the END code and the trailing partial symbol without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        writeHeader();
+        writeSpecial(AdaptiveModel.END);
+        bitWriter.write(pendingLength, 3);
+        writeRaw(SymbolKey.pack(pending, 0, pendingLength, pendingLength), pendingLength);
+        bitWriter.flush();
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package Huffman_Algorithm;
+
+/**
+ * Symbol model shared by the adaptive encoder and decoder.
+ * Both sides count every symbol and rebuild the code from the counts after the same number of symbols, so they
+ * stay in lockstep without storing a code table. Symbols that are not in the current code yet are sent as an
+ * ESCAPE code followed by the raw symbol. END marks the end of the stream and FLUSH a byte aligned flush point.
+ * The first rebuilds come early, after 256 and then 4096 symbols, so a stream does not escape every symbol for a
+ * whole interval before it has any code. The counts are halved at a rebuild once they add up to 8 intervals, so the
+ * code follows the recent data and symbols that stopped occurring drop out of the model instead of making every
+ * rebuild slower.
+ */
+class AdaptiveModel {
+    static final int ESCAPE = 0;
+    static final int END = 1;
+    static final int FLUSH = 2;
+    private static final int SPECIAL_SYMBOLS = 3;
+    // symbols before each of the first rebuilds, the following ones come every rebuildInterval symbols
+    private static final int[] EARLY_REBUILDS = {256, 4096};
+    // the counts are halved once they add up to this many rebuild intervals
+    private static final int DECAY_INTERVALS = 8;
+    // what one occurrence counts, so a symbol is dropped after 5 halvings without occurring
+    private static final int WEIGHT = 16;
+
+    final int numberOfBytes;
+    private final int rebuildInterval;
+    private final boolean decoding;
+    private LongHashMap counts = new LongHashMap();
+    private LongHashMap index = new LongHashMap();
+    private long[] keys = new long[0];
+    private long[] codes;
+    private int[] lengths;
+    private TableDecoder decoder;
+    private long total;
+    private int rebuilds;
+    private int nextRebuild;
+    private int symbolsSinceRebuild;
+    private int escapesSinceRebuild;
+
+    /**
+     * @param rebuildInterval number of symbols between two rebuilds of the code
+     * @param decoding        build lookup tables for decoding instead of encode arrays
+     */
+    AdaptiveModel(int numberOfBytes, int rebuildInterval, boolean decoding) {
+        this.numberOfBytes = numberOfBytes;
+        this.rebuildInterval = rebuildInterval;
+        this.decoding = decoding;
+        rebuild();
+    }
+
+    /**
+     * Index of the symbol in the current code, or -1 if it has to be escaped.
+     */
+    int indexOf(long key) {
+        return (int) index.get(key, -1);
+    }
+
+    // special symbols come after the seen symbols
+    int specialIndex(int special) {
+        return keys.length + special;
+    }
+
+    int special(int index) {
+        return index < keys.length ? -1 : index - keys.length;
+    }
+
+    long key(int index) {
+        return keys[index];
+    }
+
+    long code(int index) {
+        return codes[index];
+    }
+
+    int length(int index) {
+        return lengths[index];
+    }
+
+    TableDecoder decoder() {
+        return decoder;
+    }
+
+    /**
+     * Counts a coded symbol (escaped or not) and rebuilds the code when it is due.
+     */
+    void update(long key, boolean escaped) {
+        counts.addTo(key, WEIGHT);
+        total += WEIGHT;
+        if (escaped) {
+            escapesSinceRebuild++;
+        }
+        if (++symbolsSinceRebuild == nextRebuild) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        int size = counts.size();
+        long[] newKeys = new long[size];
+        long[] frequencies = new long[size + SPECIAL_SYMBOLS];
+        counts.copyTo(newKeys, frequencies);
+        if (total > (long) DECAY_INTERVALS * rebuildInterval * WEIGHT) {
+            // halve the counts, the ones that reach 0 are dropped
+            counts = new LongHashMap(size);
+            total = 0;
+            for (int i = 0; i < size; i++) {
+                long halved = frequencies[i] >>> 1;
+                if (halved > 0) {
+                    counts.put(newKeys[i], halved);
+                    total += halved;
+                }
+            }
+        }
+        // escapes are expected about as often as in the last interval
+        frequencies[size + ESCAPE] = (long) escapesSinceRebuild * WEIGHT + 1;
+        frequencies[size + END] = 1;
+        frequencies[size + FLUSH] = 1;
+
+        int[] newLengths = HuffmanTable.codeLengths(frequencies);
+        keys = newKeys;
+        lengths = newLengths;
+        codes = assignCodes(newLengths);
+        if (decoding) {
+            decoder = new TableDecoder(codes, lengths);
+        } else {
+            index = new LongHashMap(size);
+            for (int i = 0; i < size; i++) {
+                index.put(keys[i], i);
+            }
+        }
+        nextRebuild = rebuilds < EARLY_REBUILDS.length
+                ? Math.min(EARLY_REBUILDS[rebuilds], rebuildInterval) : rebuildInterval;
+        rebuilds++;
+        symbolsSinceRebuild = 0;
+        escapesSinceRebuild = 0;
+    }
+
+    // canonical codes in (length, index) order, both sides see the symbols in the same order
+    private static long[] assignCodes(int[] lengths) {
+        int maxLength = 0;
+        for (int length : lengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        int[] start = new int[maxLength + 2];
+        for (int length : lengths) {
+            start[length + 1]++;
+        }
+        for (int length = 1; length <= maxLength + 1; length++) {
+            start[length] += start[length - 1];
+        }
+        int[] order = new int[lengths.length];
+        int[] sortedLengths = new int[lengths.length];
+        for (int i = 0; i < lengths.length; i++) {
+            int slot = start[lengths[i]]++;
+            order[slot] = i;
+            sortedLengths[slot] = lengths[i];
+        }
+        long[] sortedCodes = CanonicalCode.assignCodes(sortedLengths);
+        long[] codes = new long[lengths.length];
+        for (int slot = 0; slot < order.length; slot++) {
+            codes[order[slot]] = sortedCodes[slot];
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,234 @@
+package Huffman_Algorithm;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Compresses many files in one run as a bounded pipeline. The calling thread hands the files to a fixed pool that
+ * reads, counts and encodes each one, and a writer thread writes the results in input order. At most 2 files per
+ * thread wait for the writer and the files held in memory stay within MEMORY_BUDGET bytes, so a slow disk does not
+ * pile up memory. Files larger than LARGE_FILE are encoded from the memory mapped file instead, straight to their
+ * .hc file or to a temporary file that is copied into the archive.
+ * <p>
+ * Archive format: the ARCHIVE format byte, the compressed files one after the other (each one as compress writes
+ * it, with one code table or a dictionary ID), the table of contents (the number of entries, then the name, offset,
+ * compressed length and original length of each) and the offset of the table of contents in the last 8 bytes.
+ */
+class BatchCompressor {
+    static final int MEMORY_BUDGET = 256 * 1024 * 1024;
+    static final int LARGE_FILE = 16 * 1024 * 1024;
+
+    private final FileHandler fileHandler;
+    private final int threads;
+
+    private static class Entry {
+        final Path path;
+        final String name;
+        final long originalLength;
+        final boolean large;
+        byte[] data;
+        Path compressedPath;
+        long offset;
+        long compressedLength;
+        long nanos;
+        Throwable failure;
+
+        Entry(Path path, String name, long originalLength) {
+            this.path = path;
+            this.name = name;
+            this.originalLength = originalLength;
+            this.large = originalLength > LARGE_FILE;
+        }
+    }
+
+    BatchCompressor(FileHandler fileHandler, int threads) {
+        this.fileHandler = fileHandler;
+        this.threads = threads;
+    }
+
+    /**
+     * Compresses the files, named in the archive after their path relative to base.
+     *
+     * @param archivePath the archive to write, or null for a .hc file next to every input
+     */
+    void run(List<Path> files, Path base, String archivePath) throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ExecutorService writerThread = Executors.newSingleThreadExecutor();
+        BlockingQueue<Future<Entry>> pending = new ArrayBlockingQueue<>(2 * threads);
+        Semaphore memory = new Semaphore(MEMORY_BUDGET);
+        // an empty result marks the end of the files
+        Future<Entry> end = CompletableFuture.completedFuture(null);
+        // opened here so the writer cannot fail before it takes the first file
+        try (DataOutputStream archive = archivePath == null ? null
+                : new DataOutputStream(new BufferedOutputStream(new FileOutputStream(archivePath)))) {
+            if (archive != null) {
+                archive.write(FileHandler.ARCHIVE);
+            }
+            Future<long[]> totals = writerThread.submit(() -> write(pending, memory, archive));
+            try {
+                for (Path file : files) {
+                    Entry entry;
+                    try {
+                        entry = new Entry(file, entryName(base, file), Files.size(file));
+                    } catch (IOException e) {
+                        e.printStackTrace(); // Handle or log the exception appropriately
+                        continue;
+                    }
+                    if (!entry.large) {
+                        memory.acquire((int) entry.originalLength);
+                    }
+                    pending.put(pool.submit(() -> compress(entry, archivePath != null)));
+                }
+            } finally {
+                // the writer drains the queue even when writing fails, so this does not block for long
+                pending.put(end);
+            }
+            long[] total = totals.get();
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.out.printf("%d files, %d -> %d bytes, compression ratio: %.4f, %.0f ms, %.1f MB/s%n",
+                    total[0], total[1], total[2], total[1] == 0 ? 0 : (double) total[2] / total[1], seconds * 1000,
+                    total[1] / (1024.0 * 1024.0) / seconds);
+        } catch (ExecutionException e) {
+            throw new IOException("Writing the compressed files failed", e.getCause());
+        } finally {
+            pool.shutdown();
+            writerThread.shutdown();
+        }
+    }
+
+    // archive names use '/' whatever the platform, files outside base keep their whole path
+    private static String entryName(Path base, Path file) {
+        Path relative = file.startsWith(base) ? base.relativize(file)
+                : file.getRoot() == null ? file : file.getRoot().relativize(file);
+        return relative.toString().replace('\\', '/');
+    }
+
+    // any failure, including an unchecked exception or an OutOfMemoryError, is kept in the entry, so the future
+    // always completes normally and the writer still releases its memory
+    private Entry compress(Entry entry, boolean archive) {
+        try {
+            compressEntry(entry, archive);
+        } catch (Throwable e) {
+            entry.failure = e;
+        }
+        return entry;
+    }
+
+    private void compressEntry(Entry entry, boolean archive) throws IOException {
+        long startTime = System.nanoTime();
+        if (!entry.large) {
+            byte[] data = Files.readAllBytes(entry.path);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 2 + 1024);
+            fileHandler.compressImage(FileHandler.windows(data), data.length, outputStream);
+            entry.data = outputStream.toByteArray();
+            entry.compressedLength = entry.data.length;
+        } else {
+            entry.compressedPath = archive ? Files.createTempFile("huffman", ".hc")
+                    : Path.of(fileHandler.createFilePath(entry.path.toString()));
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(entry.compressedPath.toFile()))) {
+                fileHandler.compressImage(fileHandler.windows(entry.path.toString()), entry.originalLength,
+                        outputStream);
+            }
+            entry.compressedLength = Files.size(entry.compressedPath);
+        }
+        entry.nanos = System.nanoTime() - startTime;
+        CodecMetrics.shared().transferred(entry.originalLength, entry.compressedLength);
+    }
+
+    // writer thread, returns the number of files, original bytes and compressed bytes. After a write error it keeps
+    // taking the results, so the pipeline does not stall, and throws at the end
+    private long[] write(BlockingQueue<Future<Entry>> pending, Semaphore memory, DataOutputStream archive)
+            throws IOException, InterruptedException, ExecutionException {
+        long[] total = new long[3];
+        List<Entry> contents = new ArrayList<>();
+        IOException failure = null;
+        // the format byte is already written
+        long position = archive == null ? 0 : 1;
+        while (true) {
+            Entry entry = pending.take().get();
+            if (entry == null) {
+                break;
+            }
+            try {
+                if (entry.failure != null) {
+                    // the file is left out, the others are still written
+                    entry.failure.printStackTrace(); // Handle or log the exception appropriately
+                } else if (failure == null) {
+                    writeEntry(entry, archive);
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                entry.data = null;
+                if (!entry.large) {
+                    memory.release((int) entry.originalLength);
+                } else if (archive != null && entry.compressedPath != null) {
+                    try {
+                        Files.deleteIfExists(entry.compressedPath);
+                    } catch (IOException e) {
+                        // a temporary file left behind does not stop the writer
+                        e.printStackTrace(); // Handle or log the exception appropriately
+                    }
+                }
+            }
+            if (failure != null || entry.failure != null) {
+                continue;
+            }
+            if (archive != null) {
+                entry.offset = position;
+                position += entry.compressedLength;
+                contents.add(entry);
+            }
+            total[0]++;
+            total[1] += entry.originalLength;
+            total[2] += entry.compressedLength;
+            System.out.printf("%s: %d -> %d bytes (%.4f) in %.1f ms%n", entry.name, entry.originalLength,
+                    entry.compressedLength, entry.originalLength == 0 ? 0
+                            : (double) entry.compressedLength / entry.originalLength, entry.nanos / 1e6);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        if (archive != null) {
+            archive.writeInt(contents.size());
+            for (Entry entry : contents) {
+                archive.writeUTF(entry.name);
+                archive.writeLong(entry.offset);
+                archive.writeLong(entry.compressedLength);
+                archive.writeLong(entry.originalLength);
+            }
+            archive.writeLong(position);
+        }
+        return total;
+    }
+
+    private void writeEntry(Entry entry, DataOutputStream archive) throws IOException {
+        if (archive == null) {
+            if (!entry.large) {
+                Files.write(Path.of(fileHandler.createFilePath(entry.path.toString())), entry.data);
+            }
+        } else if (!entry.large) {
+            archive.write(entry.data);
+        } else {
+            Files.copy(entry.compressedPath, archive);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads bits least significant bit first, the order BitWriter writes them.
+ * The source is a byte array or buffer, an input stream read through a buffer, or a region of a file that is
+ * memory mapped one window at a time, possibly read ahead (see ReadAhead). Past the end of the input it reads zeros, so callers stop on a symbol count
+ * or bit count instead of on the end of the input.
+ */
+class BitReader {
+    private final InputStream inputStream;
+    private final byte[] streamBuffer;
+    private final ReadAhead windows;
+    private ByteBuffer buffer;
+
+    long bitBuffer;
+    int bitCount;
+
+    BitReader(byte[] input, int offset, int limit) {
+        this(ByteBuffer.wrap(input, offset, limit - offset));
+    }
+
+    BitReader(ByteBuffer input) {
+        this.inputStream = null;
+        this.streamBuffer = null;
+        this.windows = null;
+        this.buffer = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    BitReader(InputStream inputStream, byte[] streamBuffer) {
+        this.inputStream = inputStream;
+        this.streamBuffer = streamBuffer;
+        this.windows = null;
+        this.buffer = ByteBuffer.wrap(streamBuffer, 0, 0).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads bytes [start, end) of the file, mapping windowSize bytes at a time.
+     */
+    BitReader(FileChannel channel, long start, long end, int windowSize) {
+        this(new ReadAhead(channel, start, end, windowSize, 1));
+    }
+
+    /**
+     * Reads the windows in order, the caller closes them.
+     */
+    BitReader(ReadAhead windows) {
+        this.inputStream = null;
+        this.streamBuffer = null;
+        this.windows = windows;
+        this.buffer = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * Tops up the bit buffer so at least 56 bits are available.
+     */
+    void refill() throws IOException {
+        if (buffer.remaining() >= Long.BYTES) {
+            // load a whole word and keep the bytes that fit, the bits above bitCount are the next input bits
+            int position = buffer.position();
+            bitBuffer |= buffer.getLong(position) << bitCount;
+            buffer.position(position + ((63 - bitCount) >>> 3));
+            bitCount |= 56;
+            return;
+        }
+        while (bitCount <= 56) {
+            if (!buffer.hasRemaining()) {
+                nextBuffer();
+            }
+            long next = buffer.hasRemaining() ? buffer.get() & 0xFF : 0;
+            bitBuffer |= next << bitCount;
+            bitCount += 8;
+        }
+    }
+
+    private void nextBuffer() throws IOException {
+        if (inputStream != null) {
+            int read = Math.max(0, inputStream.read(streamBuffer));
+            buffer = ByteBuffer.wrap(streamBuffer, 0, read).order(ByteOrder.LITTLE_ENDIAN);
+        } else if (windows != null) {
+            ByteBuffer window = windows.next();
+            if (window != null) {
+                buffer = window.order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    /**
+     * Loads more input into the bit buffer without waiting for stream input that is not available yet, for decoders
+     * that must not block on bits the writer has not sent. If block is true and nothing could be loaded, waits for
+     * at least one byte. Returns false when nothing was loaded, unlike refill() it does not pad with zeros.
+     */
+    boolean fetch(boolean block) throws IOException {
+        boolean loaded = false;
+        while (bitCount <= 56) {
+            if (!buffer.hasRemaining()) {
+                if (inputStream == null) {
+                    nextBuffer();
+                } else if ((block && !loaded) || inputStream.available() > 0) {
+                    int read = inputStream.read(streamBuffer);
+                    buffer = ByteBuffer.wrap(streamBuffer, 0, Math.max(0, read)).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                if (!buffer.hasRemaining()) {
+                    break;
+                }
+            }
+            bitBuffer |= (long) (buffer.get() & 0xFF) << bitCount;
+            bitCount += 8;
+            loaded = true;
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops the bits left in the current byte.
+     */
+    void alignToByte() {
+        skip(bitCount % 8);
+    }
+
+    void skip(int bits) {
+        bitBuffer >>>= bits;
+        bitCount -= bits;
+    }
+
+    /**
+     * Reads up to 56 bits.
+     */
+    long read(int bits) throws IOException {
+        if (bitCount < bits) {
+            refill();
+        }
+        long value = bitBuffer & ((1L << bits) - 1);
+        skip(bits);
+        return value;
+    }
+}
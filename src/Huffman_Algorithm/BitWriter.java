@@ -0,0 +1,99 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Collects Huffman codes in a 64 bit register and writes whole words to the output.
+ * Bits are written least significant bit first, the first bit of a code goes to the lowest free bit.
+ */
+class BitWriter {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream outputStream;
+    private final byte[] buffer;
+    private final ByteBuffer words;
+    private int position;
+    private long bitBuffer;
+    private int bitCount;
+    private long bitsWritten;
+
+    BitWriter(OutputStream outputStream) {
+        this(outputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    BitWriter(OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
+        this.buffer = new byte[Math.max(Long.BYTES, bufferSize - bufferSize % Long.BYTES)];
+        this.words = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Appends the lowest length bits of code, the bits above length must be zero.
+     */
+    void write(long code, int length) throws IOException {
+        bitBuffer |= code << bitCount;
+        bitCount += length;
+        if (bitCount >= 64) {
+            if (position > buffer.length - Long.BYTES) {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            }
+            words.putLong(position, bitBuffer);
+            position += Long.BYTES;
+            bitCount -= 64;
+            // keep the bits of the code that did not fit in the word
+            bitBuffer = bitCount == 0 ? 0 : code >>> (length - bitCount);
+        }
+        bitsWritten += length;
+    }
+
+    long bitsWritten() {
+        return bitsWritten;
+    }
+
+    /**
+     * Pads with zero bits up to the next byte boundary.
+     */
+    void alignToByte() throws IOException {
+        int padding = (8 - bitCount % 8) % 8;
+        if (padding > 0) {
+            write(0, padding);
+        }
+    }
+
+    /**
+     * Writes every complete byte to the output stream and flushes it, keeping the bits of an incomplete byte.
+     * Unlike flush() the bit stream can continue afterwards.
+     */
+    void flushWholeBytes() throws IOException {
+        while (bitCount >= 8) {
+            if (position == buffer.length) {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            }
+            buffer[position++] = (byte) bitBuffer;
+            bitBuffer >>>= 8;
+            bitCount -= 8;
+        }
+        outputStream.write(buffer, 0, position);
+        position = 0;
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the remaining bits padded with zeros to a whole byte and flushes the buffer to the output stream.
+     */
+    void flush() throws IOException {
+        outputStream.write(buffer, 0, position);
+        position = 0;
+        int remainingBytes = (bitCount + 7) / 8;
+        for (int i = 0; i < remainingBytes; i++) {
+            outputStream.write((int) (bitBuffer >>> (8 * i)) & 0xFF);
+        }
+        bitBuffer = 0;
+        bitCount = 0;
+    }
+}
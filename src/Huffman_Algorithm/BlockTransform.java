@@ -0,0 +1,19 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+
+/**
+ * A reversible transform of the bytes of a block, applied before the block is Huffman coded. Transforms are chained
+ * and chosen per block by TransformPipeline, which records their IDs in the block.
+ */
+interface BlockTransform {
+    /**
+     * Returns the transformed first length bytes of data.
+     */
+    byte[] forward(byte[] data, int length);
+
+    /**
+     * Returns the original bytes of the first length bytes of a forward result.
+     */
+    byte[] inverse(byte[] data, int length) throws IOException;
+}
@@ -0,0 +1,42 @@
+package Huffman_Algorithm;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte arrays kept for reuse, so decompressing the blocks or segments of many files does not allocate a compressed
+ * and a decoded buffer for each one. Thread safe. The arrays held stay within maxBytes in total, arrays that do not
+ * fit are left to the garbage collector.
+ */
+class BufferPool {
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final long maxBytes;
+    private final ConcurrentLinkedDeque<byte[]> buffers = new ConcurrentLinkedDeque<>();
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    BufferPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns an array of at least length bytes, with any content.
+     */
+    byte[] acquire(int length) {
+        byte[] buffer = buffers.pollFirst();
+        if (buffer == null) {
+            return new byte[length];
+        }
+        pooledBytes.addAndGet(-buffer.length);
+        // blocks and segments of a file have about the same size, so a miss is rare and the small array is dropped
+        return buffer.length >= length ? buffer : new byte[length];
+    }
+
+    void release(byte[] buffer) {
+        if (pooledBytes.addAndGet(buffer.length) <= maxBytes) {
+            buffers.offerFirst(buffer);
+        } else {
+            pooledBytes.addAndGet(-buffer.length);
+        }
+    }
+}
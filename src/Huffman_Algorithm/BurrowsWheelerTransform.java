@@ -0,0 +1,196 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The Burrows-Wheeler transform: the byte before every suffix of the block, in the sorted order of the suffixes.
+ * Bytes followed by similar contexts end up next to each other, so a log line or a column repeated with small
+ * changes becomes long clusters of a few byte values. The block ends with an implicit sentinel smaller than every
+ * byte; the result is the row of the sentinel followed by the other bytes.
+ * <p>
+ * Suffixes are sorted with SA-IS (induced sorting) in linear time, with about 17 bytes of memory per byte of the
+ * block, which is why TransformPipeline only tries it on blocks up to MAX_BLOCK.
+ */
+class BurrowsWheelerTransform implements BlockTransform {
+    static final int MAX_BLOCK = 1024 * 1024 * 4;
+
+    @Override
+    public byte[] forward(byte[] data, int length) {
+        int[] suffixes = suffixArray(data, length);
+        byte[] result = new byte[4 + length];
+        // row 0 is the sentinel suffix, preceded by the last byte
+        int out = 4;
+        if (length > 0) {
+            result[out++] = data[length - 1];
+        }
+        int sentinelRow = 0;
+        for (int row = 1; row <= length; row++) {
+            int suffix = suffixes[row - 1];
+            if (suffix == 0) {
+                sentinelRow = row;
+            } else {
+                result[out++] = data[suffix - 1];
+            }
+        }
+        ByteBuffer.wrap(result).putInt(sentinelRow);
+        return result;
+    }
+
+    @Override
+    public byte[] inverse(byte[] data, int length) throws IOException {
+        int n = length - 4;
+        if (n < 0) {
+            throw new IOException("Invalid Burrows-Wheeler block");
+        }
+        int sentinelRow = ByteBuffer.wrap(data).getInt();
+        if (sentinelRow < 0 || sentinelRow > n || (n > 0 && sentinelRow == 0)) {
+            throw new IOException("Invalid Burrows-Wheeler block");
+        }
+        // symbol 0 is the sentinel, byte b is b + 1
+        int[] symbols = new int[n + 1];
+        int[] starts = new int[258];
+        for (int row = 0; row <= n; row++) {
+            symbols[row] = row == sentinelRow ? 0 : (data[4 + (row < sentinelRow ? row : row - 1)] & 0xFF) + 1;
+            starts[symbols[row] + 1]++;
+        }
+        for (int symbol = 1; symbol < starts.length; symbol++) {
+            starts[symbol] += starts[symbol - 1];
+        }
+        // the row of the rotation that starts with the last symbol of every row
+        int[] next = new int[n + 1];
+        for (int row = 0; row <= n; row++) {
+            next[row] = starts[symbols[row]]++;
+        }
+        byte[] original = new byte[n];
+        int row = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            if (symbols[row] == 0) {
+                throw new IOException("Invalid Burrows-Wheeler block");
+            }
+            original[i] = (byte) (symbols[row] - 1);
+            row = next[row];
+        }
+        return original;
+    }
+
+    // the start of every suffix of the first length bytes of data, in sorted order
+    static int[] suffixArray(byte[] data, int length) {
+        int[] symbols = new int[length];
+        for (int i = 0; i < length; i++) {
+            symbols[i] = data[i] & 0xFF;
+        }
+        return suffixArray(symbols, 255);
+    }
+
+    // SA-IS: sorts the LMS substrings (the suffixes whose symbol is smaller than the one before, and not larger than
+    // the next one) by induced sorting, names them, sorts the string of names recursively if two are equal, then
+    // induces the order of all suffixes from the sorted LMS suffixes. Symbols are 0 to maxSymbol.
+    private static int[] suffixArray(int[] s, int maxSymbol) {
+        int n = s.length;
+        if (n <= 2) {
+            return n == 2 && s[0] >= s[1] ? new int[]{1, 0} : n == 2 ? new int[]{0, 1} : new int[n];
+        }
+        // smaller[i]: the suffix at i is smaller than the one at i + 1 (an S suffix, otherwise L)
+        boolean[] smaller = new boolean[n];
+        for (int i = n - 2; i >= 0; i--) {
+            smaller[i] = s[i] == s[i + 1] ? smaller[i + 1] : s[i] < s[i + 1];
+        }
+        // the start of the L and of the S suffixes of every symbol's bucket
+        int[] startL = new int[maxSymbol + 2];
+        int[] startS = new int[maxSymbol + 2];
+        for (int i = 0; i < n; i++) {
+            if (!smaller[i]) {
+                startS[s[i]]++;
+            } else {
+                startL[s[i] + 1]++;
+            }
+        }
+        for (int c = 0; c <= maxSymbol; c++) {
+            startS[c] += startL[c];
+            startL[c + 1] += startS[c];
+        }
+        int[] lmsIndex = new int[n + 1];
+        Arrays.fill(lmsIndex, -1);
+        int m = 0;
+        for (int i = 1; i < n; i++) {
+            if (!smaller[i - 1] && smaller[i]) {
+                lmsIndex[i] = m++;
+            }
+        }
+        int[] lms = new int[m];
+        for (int i = 1, j = 0; i < n; i++) {
+            if (!smaller[i - 1] && smaller[i]) {
+                lms[j++] = i;
+            }
+        }
+        int[] sa = new int[n];
+        int[] buckets = new int[maxSymbol + 2];
+        induce(s, sa, smaller, lms, m, startL, startS, buckets);
+        if (m > 0) {
+            int[] sortedLms = new int[m];
+            int sorted = 0;
+            for (int suffix : sa) {
+                if (lmsIndex[suffix] != -1) {
+                    sortedLms[sorted++] = suffix;
+                }
+            }
+            // equal LMS substrings get the same name
+            int[] names = new int[m];
+            int name = 0;
+            names[lmsIndex[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i++) {
+                int left = sortedLms[i - 1];
+                int right = sortedLms[i];
+                int endLeft = lmsIndex[left] + 1 < m ? lms[lmsIndex[left] + 1] : n;
+                int endRight = lmsIndex[right] + 1 < m ? lms[lmsIndex[right] + 1] : n;
+                boolean same = endLeft - left == endRight - right;
+                if (same) {
+                    while (left < endLeft && s[left] == s[right]) {
+                        left++;
+                        right++;
+                    }
+                    same = left != n && s[left] == s[right];
+                }
+                if (!same) {
+                    name++;
+                }
+                names[lmsIndex[sortedLms[i]]] = name;
+            }
+            int[] namesOrder = suffixArray(names, name);
+            for (int i = 0; i < m; i++) {
+                sortedLms[i] = lms[namesOrder[i]];
+            }
+            induce(s, sa, smaller, sortedLms, m, startL, startS, buckets);
+        }
+        return sa;
+    }
+
+    // places the LMS suffixes at the ends of their buckets in the given order, then the L suffixes from left to
+    // right and the S suffixes from right to left
+    private static void induce(int[] s, int[] sa, boolean[] smaller, int[] lms, int m, int[] startL, int[] startS,
+                               int[] buckets) {
+        int n = s.length;
+        Arrays.fill(sa, -1);
+        System.arraycopy(startS, 0, buckets, 0, buckets.length);
+        for (int i = 0; i < m; i++) {
+            sa[buckets[s[lms[i]]]++] = lms[i];
+        }
+        System.arraycopy(startL, 0, buckets, 0, buckets.length);
+        sa[buckets[s[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++) {
+            int suffix = sa[i];
+            if (suffix >= 1 && !smaller[suffix - 1]) {
+                sa[buckets[s[suffix - 1]]++] = suffix - 1;
+            }
+        }
+        System.arraycopy(startL, 0, buckets, 0, buckets.length);
+        for (int i = n - 1; i >= 0; i--) {
+            int suffix = sa[i];
+            if (suffix >= 1 && smaller[suffix - 1]) {
+                sa[--buckets[s[suffix - 1] + 1]] = suffix - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package Huffman_Algorithm;
+
+/**
+ * Canonical Huffman codes.
+ * Only the code lengths are needed to rebuild the codes: symbols are sorted by (length, symbol) and each one gets
+ * the next code of its length, so the header does not need to store the codes or the tree.
+ */
+final class CanonicalCode {
+    private CanonicalCode() {
+    }
+
+    /**
+     * Assigns the canonical codes for lengths sorted in ascending order.
+     * The codes are returned bit reversed (first bit of the code in bit 0) because that is the order the bits are
+     * written to and read from the compressed file.
+     */
+    static long[] assignCodes(int[] sortedLengths) {
+        long[] codes = new long[sortedLengths.length];
+        long code = 0;
+        int previousLength = 0;
+        for (int i = 0; i < sortedLengths.length; i++) {
+            int length = sortedLengths[i];
+            if (length < previousLength) {
+                throw new IllegalArgumentException("Code lengths are not sorted");
+            }
+            code <<= length - previousLength;
+            codes[i] = reverse(code, length);
+            code++;
+            previousLength = length;
+        }
+        return codes;
+    }
+
+    static long reverse(long code, int length) {
+        return length == 0 ? 0 : Long.reverse(code) >>> (64 - length);
+    }
+}
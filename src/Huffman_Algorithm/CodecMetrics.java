@@ -0,0 +1,294 @@
+package Huffman_Algorithm;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and counters of every compression and decompression in the JVM: time per phase, bytes in and out, symbols
+ * encoded and decoded, the size and code lengths of the code tables and the bytes allocated during the phases.
+ * Counters are LongAdders updated once per phase, file, block or segment, never per symbol, so they cost nothing
+ * measurable. register() exposes them over JMX, and every phase is also a JFR event (Huffman_Algorithm.Phase) that
+ * is recorded whenever a flight recording is running.
+ * <p>
+ * I/O wait is the time spent in explicit file reads and writes, and waiting for windows read ahead or buffers written
+ * behind (see ReadAhead). Memory mapped input that is not read ahead is read by page faults, which count toward the
+ * phase that touches the data first (histogram or encode).
+ * <p>
+ * Phases record exclusive time: a phase timed inside another one on the same thread, such as I/O wait inside
+ * decode, is subtracted from the outer phase with its allocations. The phases of one thread add up to at most its
+ * wall time, the JFR events still span their whole duration.
+ */
+public class CodecMetrics implements CodecMetricsMBean {
+    public static final String OBJECT_NAME = "Huffman_Algorithm:type=CodecMetrics";
+    private static final CodecMetrics SHARED = new CodecMetrics();
+    // the innermost timer open on the thread
+    private static final ThreadLocal<Timer> OPEN = new ThreadLocal<>();
+
+    enum Phase {
+        HISTOGRAM, TRANSFORM, TREE, TABLE, ENCODE, DECODE, IO_WAIT
+    }
+
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder encodedSymbols = new LongAdder();
+    private final LongAdder encodedBits = new LongAdder();
+    private final LongAdder decodedSymbols = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private volatile int tableSize;
+    private final AtomicInteger maxCodeLength = new AtomicInteger();
+    // per thread allocation counter of HotSpot, null on JVMs without it
+    private final com.sun.management.ThreadMXBean allocation;
+
+    private CodecMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        allocation = threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()
+                ? (com.sun.management.ThreadMXBean) threads : null;
+    }
+
+    /**
+     * The metrics every FileHandler and HuffmanFileReader in this JVM reports to.
+     */
+    public static CodecMetrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * Registers the shared metrics with the platform MBean server under OBJECT_NAME, once.
+     */
+    public static synchronized void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(SHARED, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered
+        } catch (JMException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        }
+    }
+
+    /**
+     * Starts timing a phase on the calling thread, the time is added when the timer is closed. Timers of one thread
+     * are closed in the reverse order they were started, as try-with-resources does.
+     */
+    Timer time(Phase phase) {
+        return new Timer(phase);
+    }
+
+    void encoded(long symbols, long bits) {
+        encodedSymbols.add(symbols);
+        encodedBits.add(bits);
+    }
+
+    void decoded(long symbols) {
+        decodedSymbols.add(symbols);
+    }
+
+    // the size of the last code table built and the longest code of any of them
+    void codeTable(HuffmanTable table) {
+        tableSize = table.size();
+        // atomic, so concurrent codecs do not lose the longest code
+        maxCodeLength.accumulateAndGet(table.maxLength(), Math::max);
+    }
+
+    void transferred(long in, long out) {
+        bytesIn.add(in);
+        bytesOut.add(out);
+    }
+
+    @Override
+    public long getHistogramMillis() {
+        return millis(Phase.HISTOGRAM);
+    }
+
+    @Override
+    public long getTransformMillis() {
+        return millis(Phase.TRANSFORM);
+    }
+
+    @Override
+    public long getTreeMillis() {
+        return millis(Phase.TREE);
+    }
+
+    @Override
+    public long getTableMillis() {
+        return millis(Phase.TABLE);
+    }
+
+    @Override
+    public long getEncodeMillis() {
+        return millis(Phase.ENCODE);
+    }
+
+    @Override
+    public long getDecodeMillis() {
+        return millis(Phase.DECODE);
+    }
+
+    @Override
+    public long getIoWaitMillis() {
+        return millis(Phase.IO_WAIT);
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getEncodedSymbols() {
+        return encodedSymbols.sum();
+    }
+
+    @Override
+    public long getDecodedSymbols() {
+        return decodedSymbols.sum();
+    }
+
+    @Override
+    public double getEncodeSymbolsPerSecond() {
+        return perSecond(encodedSymbols.sum(), Phase.ENCODE);
+    }
+
+    @Override
+    public double getDecodeSymbolsPerSecond() {
+        return perSecond(decodedSymbols.sum(), Phase.DECODE);
+    }
+
+    @Override
+    public int getTableSize() {
+        return tableSize;
+    }
+
+    @Override
+    public int getMaxCodeLength() {
+        return maxCodeLength.get();
+    }
+
+    @Override
+    public double getAverageCodeLength() {
+        long symbols = encodedSymbols.sum();
+        return symbols == 0 ? 0 : (double) encodedBits.sum() / symbols;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder nanos : phaseNanos) {
+            nanos.reset();
+        }
+        bytesIn.reset();
+        bytesOut.reset();
+        encodedSymbols.reset();
+        encodedBits.reset();
+        decodedSymbols.reset();
+        allocatedBytes.reset();
+        tableSize = 0;
+        maxCodeLength.set(0);
+    }
+
+    private long millis(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum() / 1_000_000;
+    }
+
+    private double perSecond(long count, Phase phase) {
+        long nanos = phaseNanos[phase.ordinal()].sum();
+        return nanos == 0 ? 0 : count * 1e9 / nanos;
+    }
+
+    private long allocatedBytes() {
+        return allocation == null ? 0 : allocation.getCurrentThreadAllocatedBytes();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            summary.append(String.format("%-10s %8d ms%n", phase.name().toLowerCase(), millis(phase)));
+        }
+        summary.append(String.format("bytes in %d, bytes out %d, allocated %d%n", getBytesIn(), getBytesOut(),
+                getAllocatedBytes()));
+        summary.append(String.format("encoded %d symbols (%.0f/s), decoded %d symbols (%.0f/s)%n",
+                getEncodedSymbols(), getEncodeSymbolsPerSecond(), getDecodedSymbols(), getDecodeSymbolsPerSecond()));
+        summary.append(String.format("table size %d, max code length %d, average code length %.3f",
+                getTableSize(), getMaxCodeLength(), getAverageCodeLength()));
+        return summary.toString();
+    }
+
+    final class Timer implements AutoCloseable {
+        private final Phase phase;
+        private final long start;
+        private final long allocatedAtStart;
+        private final PhaseEvent event;
+        private final Timer outer;
+        // time and allocations of the timers nested in this one, which they count themselves
+        private long nestedNanos;
+        private long nestedAllocated;
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+            this.outer = OPEN.get();
+            OPEN.set(this);
+            this.event = new PhaseEvent();
+            event.phase = phase.name();
+            event.begin();
+            this.allocatedAtStart = allocatedBytes();
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedAtStart;
+            phaseNanos[phase.ordinal()].add(nanos - nestedNanos);
+            allocatedBytes.add(allocated - nestedAllocated);
+            if (outer != null) {
+                outer.nestedNanos += nanos;
+                outer.nestedAllocated += allocated;
+                OPEN.set(outer);
+            } else {
+                OPEN.remove();
+            }
+            if (event.shouldCommit()) {
+                event.allocated = allocated - nestedAllocated;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("Huffman_Algorithm.Phase")
+    @Label("Huffman Codec Phase")
+    @Category("Huffman")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+}
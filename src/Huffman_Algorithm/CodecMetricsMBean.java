@@ -0,0 +1,43 @@
+package Huffman_Algorithm;
+
+/**
+ * Management interface of CodecMetrics, registered as Huffman_Algorithm:type=CodecMetrics. Phase times are summed
+ * over all threads, so with parallel blocks or segments they can add up to more than the wall time.
+ */
+public interface CodecMetricsMBean {
+    long getHistogramMillis();
+
+    long getTransformMillis();
+
+    long getTreeMillis();
+
+    long getTableMillis();
+
+    long getEncodeMillis();
+
+    long getDecodeMillis();
+
+    long getIoWaitMillis();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long getEncodedSymbols();
+
+    long getDecodedSymbols();
+
+    double getEncodeSymbolsPerSecond();
+
+    double getDecodeSymbolsPerSecond();
+
+    int getTableSize();
+
+    int getMaxCodeLength();
+
+    double getAverageCodeLength();
+
+    long getAllocatedBytes();
+
+    void reset();
+}
@@ -0,0 +1,52 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recently used dictionaries loaded, with their decoding tables, so decompressing many files that
+ * share a dictionary reads and builds it only once. Dictionaries are loaded from one directory by ID.
+ */
+class DictionaryCache {
+    static final int DEFAULT_CAPACITY = 16;
+
+    private final Path directory;
+    private final Map<Integer, HuffmanDictionary> dictionaries;
+
+    DictionaryCache(Path directory, int capacity) {
+        this.directory = directory;
+        // access order, the eldest entry is the least recently used one
+        this.dictionaries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, HuffmanDictionary> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * The cache of the dictionary directory in caches, created on first use. Without a dictionary directory the
+     * dictionaries are next to the compressed file.
+     */
+    static DictionaryCache of(Map<Path, DictionaryCache> caches, Path dictionaryDirectory, String filePath) {
+        Path directory = dictionaryDirectory != null ? dictionaryDirectory
+                : Paths.get(filePath).toAbsolutePath().getParent();
+        return caches.computeIfAbsent(directory, key -> new DictionaryCache(key, DEFAULT_CAPACITY));
+    }
+
+    synchronized HuffmanDictionary get(int id) throws IOException {
+        HuffmanDictionary dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            dictionary = HuffmanDictionary.load(directory, id);
+            dictionaries.put(id, dictionary);
+        }
+        return dictionary;
+    }
+
+    synchronized void put(HuffmanDictionary dictionary) {
+        dictionaries.put(dictionary.id, dictionary);
+    }
+}
@@ -0,0 +1,139 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Code and length of every symbol in flat arrays, so encoding does not need a map lookup or a Symbol per symbol.
+ * For 1 and 2 byte symbols the arrays are indexed by the symbol value itself, wider symbols are first mapped to
+ * an index through a LongHashMap.
+ */
+class EncodeTable {
+    private static final int DIRECT_MAX_BYTES = 2;
+
+    private final int numberOfBytes;
+    private final long[] codes;
+    private final int[] lengths;
+    private final LongHashMap index;
+    // code written before the raw bytes of a symbol that has no code, see encodeEscaped
+    private long escapeCode;
+    private int escapeLength;
+
+    /**
+     * @param keys    packed symbols, see SymbolKey
+     * @param codes   the code of symbol i, first bit of the code in bit 0
+     * @param lengths the code length of symbol i
+     */
+    EncodeTable(int numberOfBytes, long[] keys, long[] codes, int[] lengths) {
+        this.numberOfBytes = numberOfBytes;
+        if (numberOfBytes <= DIRECT_MAX_BYTES) {
+            this.codes = new long[1 << (8 * numberOfBytes)];
+            this.lengths = new int[1 << (8 * numberOfBytes)];
+            for (int i = 0; i < keys.length; i++) {
+                this.codes[(int) keys[i]] = codes[i];
+                this.lengths[(int) keys[i]] = lengths[i];
+            }
+            this.index = null;
+        } else {
+            this.codes = codes;
+            this.lengths = lengths;
+            this.index = new LongHashMap(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                index.put(keys[i], i);
+            }
+        }
+    }
+
+    void setEscape(long escapeCode, int escapeLength) {
+        this.escapeCode = escapeCode;
+        this.escapeLength = escapeLength;
+    }
+
+    /**
+     * Code length of a packed symbol that is in the table.
+     */
+    int length(long key) {
+        return index == null ? lengths[(int) key] : lengths[(int) index.get(key, -1)];
+    }
+
+    /**
+     * Number of bits encoding bytes [offset, limit) of the input takes, or -1 if a symbol has no code.
+     */
+    long codedBits(ByteBuffer input, int offset, int limit) {
+        long bits = 0;
+        for (int i = offset; i < limit; i += numberOfBytes) {
+            long key = SymbolKey.pack(input, i, numberOfBytes, limit);
+            int symbol = index == null ? (int) key : (int) index.get(key, -1);
+            // symbols without a code have length 0 in the direct arrays
+            if (symbol < 0 || lengths[symbol] == 0) {
+                return -1;
+            }
+            bits += lengths[symbol];
+        }
+        return bits;
+    }
+
+    /**
+     * Encodes bytes [offset, limit) of the input. The input must hold whole symbols except at the end of the file,
+     * where the last symbol is padded with zero bytes.
+     */
+    void encode(byte[] input, int offset, int limit, BitWriter writer) throws IOException {
+        encode(ByteBuffer.wrap(input), offset, limit, writer);
+    }
+
+    /**
+     * Same as encode(byte[], int, int, BitWriter) for a heap, direct or memory mapped buffer, using absolute positions.
+     */
+    void encode(ByteBuffer input, int offset, int limit, BitWriter writer) throws IOException {
+        if (numberOfBytes == 1) {
+            for (int i = offset; i < limit; i++) {
+                int symbol = input.get(i) & 0xFF;
+                writer.write(codes[symbol], lengths[symbol]);
+            }
+        } else if (index == null) {
+            for (int i = offset; i < limit; i += numberOfBytes) {
+                int symbol = (int) SymbolKey.pack(input, i, numberOfBytes, limit);
+                writer.write(codes[symbol], lengths[symbol]);
+            }
+        } else {
+            for (int i = offset; i < limit; i += numberOfBytes) {
+                int symbol = (int) index.get(SymbolKey.pack(input, i, numberOfBytes, limit), -1);
+                writer.write(codes[symbol], lengths[symbol]);
+            }
+        }
+    }
+
+    /**
+     * Same as encode(ByteBuffer, int, int, BitWriter) for input that may hold symbols without a code: they are
+     * written as the escape code (see setEscape) followed by their numberOfBytes bytes, 8 bits each.
+     */
+    void encodeEscaped(ByteBuffer input, int offset, int limit, BitWriter writer) throws IOException {
+        if (numberOfBytes == 1) {
+            for (int i = offset; i < limit; i++) {
+                int symbol = input.get(i) & 0xFF;
+                if (lengths[symbol] != 0) {
+                    writer.write(codes[symbol], lengths[symbol]);
+                } else {
+                    writeEscaped(symbol, writer);
+                }
+            }
+            return;
+        }
+        for (int i = offset; i < limit; i += numberOfBytes) {
+            long key = SymbolKey.pack(input, i, numberOfBytes, limit);
+            int symbol = index == null ? (int) key : (int) index.get(key, -1);
+            if (symbol >= 0 && lengths[symbol] != 0) {
+                writer.write(codes[symbol], lengths[symbol]);
+            } else {
+                writeEscaped(key, writer);
+            }
+        }
+    }
+
+    private void writeEscaped(long key, BitWriter writer) throws IOException {
+        writer.write(escapeCode, escapeLength);
+        for (int shift = 8 * (numberOfBytes - 1); shift >= 0; shift -= 8) {
+            writer.write((key >>> shift) & 0xFF, 8);
+        }
+    }
+}
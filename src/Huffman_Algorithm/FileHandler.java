@@ -2,62 +2,1278 @@ package Huffman_Algorithm;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// timers are try-with-resources that only mark the scope of a phase, so they are never referenced in the body
+@SuppressWarnings("try")
 public class FileHandler {
-    private static final int BUFFER_SIZE = 1024 * 1024 * 315;
-    private static int numberOfBytes = 2;
+    public static final int DEFAULT_WINDOW_SIZE = 1024 * 1024 * 64;
+    // one window or buffer being coded, one being read or written and one ready
+    public static final int DEFAULT_IO_BUFFERS = 3;
+    public static final int DEFAULT_WRITE_BUFFER_SIZE = 1024 * 1024;
+    // walk the reverse Huffman tree bit by bit instead of using the lookup tables, only meant for debugging
+    private static final boolean DEBUG_TREE_DECODE = Boolean.getBoolean("huffman.debugTreeDecode");
+    private static final CodecMetrics METRICS = CodecMetrics.shared();
+    // header formats, the first byte of every compressed file
+    static final int EXPLICIT_TABLE = 0;
+    static final int CANONICAL_TABLE = 1;
+    static final int BLOCKS = 2;
+    static final int INDEXED = 5;
+    // BLOCKS with every block split into INTERLEAVED_STREAMS streams
+    static final int INTERLEAVED_BLOCKS = 6;
+    private static final int INTERLEAVED_STREAMS = 4;
+    // the ID of a shared dictionary instead of a code table
+    static final int DICTIONARY_TABLE = 7;
+    // written by BatchCompressor
+    static final int ARCHIVE = 8;
+    // a code table counted on a sample of the file, with an escape code for the symbols the sample missed
+    static final int SAMPLED = 9;
+    // written by HuffmanOutputStream
+    static final int STREAM = 3;
+    // written by AdaptiveHuffmanOutputStream
+    static final int ADAPTIVE = 4;
+    // the original bytes, for files that Huffman coding would not make smaller
+    static final int STORED = 10;
+    // bit length in the block index of a block kept as it is
+    static final long STORED_BLOCK = -1;
+    // BLOCKS or INTERLEAVED_BLOCKS, whose format byte follows, with transforms before the Huffman code of every
+    // block (see TransformPipeline)
+    static final int TRANSFORMED_BLOCKS = 11;
+    // a file or block whose code would take more than this share of its size is stored instead of coded
+    static final double STORE_RATIO = 0.98;
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024 * 16;
+    public static final int DEFAULT_SYNC_INTERVAL = 1024 * 1024;
+    public static final int DEFAULT_SAMPLE_SIZE = 1024 * 1024 * 16;
+    // blocks of about the size bzip2 uses, small enough for the Burrows-Wheeler transform
+    public static final int DEFAULT_TRANSFORM_BLOCK_SIZE = 1024 * 1024;
+    // the sample is read in chunks of this size spread over the file
+    private static final int SAMPLE_CHUNK = 64 * 1024;
+    // compressAuto drops a width once it has more distinct symbols than this
+    private static final int AUTO_MAX_SYMBOLS = 1 << 20;
+    // 840 is divisible by every width from 1 to 8, so windows of a multiple of it hold whole symbols of all of them
+    private static final int AUTO_ALIGNMENT = 840;
+    // set by every compress and decompress call, so a FileHandler runs one call at a time (see HuffmanCodec)
+    private int numberOfBytes = 2;
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+    private int ioBuffers = DEFAULT_IO_BUFFERS;
+    private int writeBufferSize = DEFAULT_WRITE_BUFFER_SIZE;
+    private int maxCodeLength = HuffmanTable.DEFAULT_MAX_CODE_LENGTH;
+    private int syncInterval;
+    private boolean interleaved;
+    private boolean transform;
+    private int sampleSize;
+    private HuffmanDictionary dictionary;
+    private Path dictionaryDirectory;
+    // set by every compress call, see getDictionaryFallback
+    private String dictionaryFallback;
+    // set by every choice of the number of bytes per symbol, see getEstimatedSizes
+    private long[] estimatedSizes;
+    // one cache per dictionary directory, shared with the other calls of a HuffmanCodec
+    private final Map<Path, DictionaryCache> dictionaries;
+    private final BufferPool buffers;
+
+    public FileHandler() {
+        this(new ConcurrentHashMap<>(), new BufferPool(BufferPool.DEFAULT_MAX_BYTES));
+    }
+
+    FileHandler(Map<Path, DictionaryCache> dictionaries, BufferPool buffers) {
+        this.dictionaries = dictionaries;
+        this.buffers = buffers;
+    }
+
+    /**
+     * Sets how much of a file is memory mapped at a time when reading it, 64 MB by default.
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize < SymbolKey.MAX_BYTES) {
+            throw new IllegalArgumentException("Window size must be at least " + SymbolKey.MAX_BYTES + " bytes");
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Sets how many windows and output buffers are in flight, 3 by default. With more than one, an I/O thread maps
+     * and loads the next windows of the input while the current one is coded, and another one writes the full
+     * output buffers while the next one is filled, so a compression or decompression takes about as long as its
+     * I/O or its coding, whichever is longer, instead of both. 1 reads and writes on the coding thread.
+     */
+    public void setIoBuffers(int ioBuffers) {
+        if (ioBuffers < 1) {
+            throw new IllegalArgumentException("Number of I/O buffers must be at least 1");
+        }
+        this.ioBuffers = ioBuffers;
+    }
+
+    /**
+     * Sets the size of every output buffer, 1 MB by default. Input is read one window at a time (setWindowSize).
+     */
+    public void setWriteBufferSize(int writeBufferSize) {
+        if (writeBufferSize < 1) {
+            throw new IllegalArgumentException("Write buffer size must be positive");
+        }
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    /**
+     * Sets the longest Huffman code in bits, 24 by default. Lower limits give smaller decoding tables at a small
+     * cost in compression. The limit is raised when the file has more than 2^maxCodeLength distinct symbols.
+     */
+    public void setMaxCodeLength(int maxCodeLength) {
+        if (maxCodeLength < 1 || maxCodeLength > HuffmanTable.MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Maximum code length must be between 1 and " + HuffmanTable.MAX_CODE_LENGTH);
+        }
+        this.maxCodeLength = maxCodeLength;
+    }
+
+    /**
+     * Makes compress record a sync point every syncInterval symbols, 0 (the default) records none.
+     * The header then holds the bit offset of every sync point, so the file is decompressed in parallel, one
+     * segment between two sync points per task.
+     */
+    public void setSyncInterval(int syncInterval) {
+        if (syncInterval < 0) {
+            throw new IllegalArgumentException("Sync interval must not be negative");
+        }
+        this.syncInterval = syncInterval;
+    }
+
+    /**
+     * Makes compressBlocks split every block into 4 streams that are decoded together, one symbol of each stream
+     * per step, which decodes faster on a single core. Costs a 12 byte jump table and a few bits of padding per block.
+     * Like -interleave on the command line it implies blocks: compress and compressAuto then compress in blocks of
+     * defaultBlockSize, and compressBatch rejects it.
+     */
+    public void setInterleaved(boolean interleaved) {
+        this.interleaved = interleaved;
+    }
+
+    /**
+     * Makes compressBlocks run-length, move-to-front and Burrows-Wheeler transform every block where that makes
+     * it smaller, see TransformPipeline. The stages are chosen per block and recorded in it. The Burrows-Wheeler
+     * transform is only tried on blocks of up to 4 MB. Like -transform on the command line it implies blocks: compress
+     * and compressAuto then compress in blocks of defaultBlockSize, and compressBatch rejects it.
+     */
+    public void setTransform(boolean transform) {
+        this.transform = transform;
+    }
+
+    /**
+     * Makes compress count the symbols of a sample of sampleSize bytes instead of the whole file, so the file is
+     * only read once in full. The sample is taken in chunks spread evenly over the file, and symbols that are not in
+     * the sample are written as an escape code followed by their raw bytes. 0 (the default) counts the whole file,
+     * as do files no larger than the sample.
+     */
+    public void setSampleSize(int sampleSize) {
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException("Sample size must not be negative");
+        }
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Makes compress code the file with the dictionary in the given file (see trainDictionary) and store only the
+     * dictionary ID. The number of bytes per symbol is the one the dictionary was trained with.
+     */
+    public void setDictionary(String dictionaryPath) {
+        try {
+            setDictionary(dictionaryPath == null ? null : HuffmanDictionary.load(Paths.get(dictionaryPath)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read dictionary " + dictionaryPath, e);
+        }
+    }
+
+    // a loaded dictionary, shared by the calls of a HuffmanCodec
+    void setDictionary(HuffmanDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Why the last compress call stored a code table of its own instead of using the dictionary, or null when it
+     * used the dictionary or none was set.
+     */
+    public String getDictionaryFallback() {
+        return dictionaryFallback;
+    }
+
+    /**
+     * Sets the directory decompress loads dictionaries from, by default the directory of the compressed file.
+     * The last DictionaryCache.DEFAULT_CAPACITY dictionaries used stay loaded.
+     */
+    public void setDictionaryDirectory(String directory) {
+        dictionaryDirectory = Paths.get(directory);
+    }
+
+    /**
+     * Trains a dictionary on the symbol counts of the sample files and saves it in the given directory, named after
+     * its ID. Returns the path of the dictionary file.
+     */
+    public String trainDictionary(String directory, int n, String... samplePaths) {
+        if (n < 1 || n > SymbolKey.MAX_BYTES) {
+            throw new IllegalArgumentException("Number of bytes per symbol must be between 1 and " + SymbolKey.MAX_BYTES);
+        }
+        numberOfBytes = n;
+        try {
+            Histogram samples = new Histogram(n);
+            for (String samplePath : samplePaths) {
+                readWindows(samplePath, (window, length) -> samples.add(window, 0, length));
+            }
+            HuffmanDictionary trained = HuffmanDictionary.train(samples, maxCodeLength);
+            return trained.save(Paths.get(directory)).toString();
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+            return null;
+        }
+    }
+
+    // the compress and decompress methods set it, the benchmarks set it before running a single phase
+    void setNumberOfBytes(int n) {
+        numberOfBytes = n;
+    }
 
     public void compress(String filePath, int n) {
+        compress(filePath, n, true);
+    }
+
+    /**
+     * @param canonical store only the code lengths in the header (canonical Huffman codes) instead of every code
+     */
+    public void compress(String filePath, int n, boolean canonical) {
+        if (interleaved || transform) {
+            checkBlockTables(canonical);
+            compressBlocks(filePath, n, defaultBlockSize(transform));
+            return;
+        }
+        compress(filePath, n, canonical, null);
+    }
+
+    // interleaving and transforms compress in blocks, see compressBlocks for the other settings blocks reject
+    private static void checkBlockTables(boolean canonical) {
+        if (!canonical) {
+            throw new IllegalArgumentException("Interleaved and transformed files are compressed in blocks, which "
+                    + "always store canonical code tables");
+        }
+    }
+
+    /**
+     * The block size interleaving and transforms imply when no block size is given: DEFAULT_TRANSFORM_BLOCK_SIZE
+     * with transforms, DEFAULT_BLOCK_SIZE otherwise.
+     */
+    public static int defaultBlockSize(boolean transform) {
+        return transform ? DEFAULT_TRANSFORM_BLOCK_SIZE : DEFAULT_BLOCK_SIZE;
+    }
+
+    /**
+     * Compresses the file with the number of bytes per symbol that gives the smallest file (see
+     * chooseNumberOfBytes) and returns it. The symbol counts of the chosen width are reused, so the file is read
+     * only once more to encode it.
+     */
+    public int compressAuto(String filePath, boolean canonical) {
+        estimatedSizes = null;
+        if (interleaved || transform) {
+            checkBlockTables(canonical);
+            int n = chooseNumberOfBytes(filePath);
+            compressBlocks(filePath, n, defaultBlockSize(transform));
+            return n;
+        }
+        if (dictionary != null) {
+            compress(filePath, dictionary.numberOfBytes(), canonical);
+            return dictionary.numberOfBytes();
+        }
+        Histogram frequencies = autoFrequencyTable(filePath, canonical);
+        compress(filePath, frequencies.numberOfBytes(), canonical, frequencies);
+        return frequencies.numberOfBytes();
+    }
+
+    /**
+     * Returns the number of bytes per symbol, 1 to 8, that gives the smallest compressed file. One pass over the file
+     * (or over its sample when sampling) counts the symbols of every width at once, one width per thread, and the
+     * code table of every width is then built to add up its header and payload size. Widths with more than
+     * AUTO_MAX_SYMBOLS distinct symbols, or whose symbols alone take more room than the file, are dropped during
+     * the pass.
+     */
+    public int chooseNumberOfBytes(String filePath) {
+        estimatedSizes = null;
+        return dictionary != null ? dictionary.numberOfBytes()
+                : autoFrequencyTable(filePath, true).numberOfBytes();
+    }
+
+    /**
+     * The compressed file size in bytes estimated for every number of bytes per symbol by the last compressAuto or
+     * chooseNumberOfBytes call, indexed by the number of bytes per symbol: -1 for the widths dropped during the pass.
+     * Null when no estimate was made, as with a dictionary.
+     */
+    public long[] getEstimatedSizes() {
+        return estimatedSizes;
+    }
+
+    // the symbol counts of the width that gives the smallest compressed file
+    private Histogram autoFrequencyTable(String filePath, boolean canonical) {
+        long originalFileSize = new File(filePath).length();
+        boolean sampled = sampleSize > 0 && originalFileSize > sampleSize;
+        Histogram[] histograms = new Histogram[SymbolKey.MAX_BYTES + 1];
+        for (int n = 1; n <= SymbolKey.MAX_BYTES; n++) {
+            histograms[n] = new Histogram(n);
+        }
+        long[] countedBytes = {0};
+        WindowConsumer counter = (window, length) -> {
+            IntStream.rangeClosed(1, SymbolKey.MAX_BYTES).parallel().forEach(n -> {
+                if (histograms[n] != null) {
+                    histograms[n].add(window, 0, length);
+                }
+            });
+            countedBytes[0] += length;
+            for (int n = 3; n <= SymbolKey.MAX_BYTES; n++) {
+                if (histograms[n] != null && (histograms[n].size() > AUTO_MAX_SYMBOLS
+                        || (long) histograms[n].size() * n > originalFileSize)) {
+                    histograms[n] = null;
+                }
+            }
+        };
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.HISTOGRAM)) {
+            if (sampled) {
+                sampleWindows(filePath, originalFileSize, AUTO_ALIGNMENT, counter);
+            } else {
+                readWindows(filePath, AUTO_ALIGNMENT, counter);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        }
+
+        // the sample stands for the whole file
+        double scale = countedBytes[0] == 0 ? 1 : (double) originalFileSize / countedBytes[0];
+        Histogram best = histograms[1];
+        double bestSize = Double.MAX_VALUE;
+        long[] sizes = new long[SymbolKey.MAX_BYTES + 1];
+        Arrays.fill(sizes, -1);
+        for (int n = 1; n <= SymbolKey.MAX_BYTES; n++) {
+            if (histograms[n] == null) {
+                continue;
+            }
+            HuffmanTable table = buildHuffmanTree(histograms[n]);
+            double compressedFileSize = calculateCompressedFileSize(histograms[n], table.encodeTable()) * scale
+                    + (canonical ? 1 + 8 + table.headerSize() : 1 + 8 + 4 + (n + 4 + 4) * table.size());
+            sizes[n] = (long) compressedFileSize;
+            if (compressedFileSize < bestSize) {
+                bestSize = compressedFileSize;
+                best = histograms[n];
+            }
+        }
+        estimatedSizes = sizes;
+        return best;
+    }
+
+    // frequencies: the symbol counts of the file, or of its sample when sampling, if they are already known
+    private void compress(String filePath, int n, boolean canonical, Histogram frequencies) {
+        if (n < 1 || n > SymbolKey.MAX_BYTES) {
+            throw new IllegalArgumentException("Number of bytes per symbol must be between 1 and " + SymbolKey.MAX_BYTES);
+        }
+        if (syncInterval > 0 && !canonical) {
+            throw new IllegalArgumentException("Sync points need the canonical code table");
+        }
         numberOfBytes = n;
-        Map<Symbol, Integer> frequencies = frequencyTable(filePath);
+        dictionaryFallback = null;
+        if (dictionary != null && compressWithDictionary(filePath, n)) {
+            return;
+        }
+        if (sampleSize > 0 && new File(filePath).length() > sampleSize) {
+            if (syncInterval > 0 || !canonical) {
+                throw new IllegalArgumentException("Sampling needs the canonical code table and no sync points");
+            }
+            compressSampled(filePath, frequencies);
+            return;
+        }
+        if (frequencies == null) {
+            frequencies = frequencyTable(filePath);
+        }
+        if (incompressible(frequencies, new File(filePath).length())) {
+            storeFile(filePath);
+            return;
+        }
 
-        HuffmanNode root = buildHuffmanTree(frequencies);
+        HuffmanTable table = buildHuffmanTree(frequencies);
 
-        // change Bitset to Byte array
-        Map<Symbol, MyBitSet> huffmanCodeTable = new HashMap<>();
-        // print the huffman code table
-        buildHuffmanCodeTable(root, huffmanCodeTable, new MyBitSet());
+        // the canonical codes, also written as they are when canonical is false
+        EncodeTable huffmanCodeTable = buildHuffmanCodeTable(table);
         // calculate the size of the compressed file in KB and print it
         double compressedFileSize = calculateCompressedFileSize(frequencies, huffmanCodeTable);
         //add header size to the compressed file size
-        compressedFileSize += 4 + ((numberOfBytes + 4 + 4)*huffmanCodeTable.size());
+        if (syncInterval > 0) {
+            compressedFileSize += 1 + 8 + table.headerSize() + 4 + 4 + 8 * syncPointCount(new File(filePath).length());
+        } else if (canonical) {
+            compressedFileSize += 1 + 8 + table.headerSize();
+        } else {
+            compressedFileSize += 1 + 8 + 4 + ((numberOfBytes + 4 + 4) * table.size());
+        }
         //get original file size
         File file = new File(filePath);
         double originalFileSize = file.length();
+        if (compressedFileSize > STORE_RATIO * originalFileSize) {
+            storeFile(filePath);
+            return;
+        }
         //calculate compression ratio
         double compressionRatio = compressedFileSize/originalFileSize;
         System.out.println("Compression ratio: " + compressionRatio);
 
         String newFilePath = createFilePath(filePath);
-        writeCompressedFile(filePath, newFilePath, huffmanCodeTable);
+        writeCompressedFile(filePath, newFilePath, table, huffmanCodeTable, file.length(), canonical);
+        METRICS.transferred(file.length(), new File(newFilePath).length());
+    }
+
+    /**
+     * True when even the entropy of the counts (Histogram.codedSizeBound) is more than STORE_RATIO of the data.
+     */
+    static boolean incompressible(Histogram frequencies, long length) {
+        return frequencies.codedSizeBound() > STORE_RATIO * length;
+    }
+
+    private void storeFile(String filePath) {
+        long originalFileSize = new File(filePath).length();
+        String newFilePath = createFilePath(filePath);
+        try (OutputStream outputStream = outputStream(new FileOutputStream(newFilePath))) {
+            writeStored(windows(filePath), originalFileSize, outputStream);
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        }
+        METRICS.transferred(originalFileSize, new File(newFilePath).length());
+        System.out.println("Stored without coding, compression ratio: "
+                + (double) new File(newFilePath).length() / originalFileSize);
+    }
+
+    private void writeStored(WindowSource source, long originalLength, OutputStream outputStream) throws IOException {
+        outputStream.write(STORED);
+        writeLong(outputStream, originalLength);
+        byte[] chunk = new byte[64 * 1024];
+        source.read((window, length) -> {
+            for (int position = 0; position < length; position += chunk.length) {
+                int count = Math.min(chunk.length, length - position);
+                window.get(position, chunk, 0, count);
+                outputStream.write(chunk, 0, count);
+            }
+        });
+    }
+
+    // returns false, without writing anything and with the reason in dictionaryFallback, when the file has symbols
+    // the dictionary has no code for or would come out larger than it is
+    private boolean compressWithDictionary(String filePath, int n) {
+        if (n != dictionary.numberOfBytes()) {
+            throw new IllegalArgumentException("The dictionary was trained with " + dictionary.numberOfBytes()
+                    + " bytes per symbol");
+        }
+        if (syncInterval > 0) {
+            throw new IllegalArgumentException("Sync points are not supported with a dictionary");
+        }
+        EncodeTable encodeTable = dictionary.encodeTable();
+        String newFilePath = createFilePath(filePath);
+        try {
+            long codedBits = dictionaryBits(windows(filePath));
+            if (codedBits < 0) {
+                dictionaryFallback = "The dictionary does not cover every symbol, storing a code table instead";
+                return false;
+            }
+            if (codedBits / 8 > new File(filePath).length()) {
+                dictionaryFallback = "The dictionary would make the file larger, storing a code table instead";
+                return false;
+            }
+            long originalFileSize = new File(filePath).length();
+            try (OutputStream outputStream = outputStream(new FileOutputStream(newFilePath))) {
+                outputStream.write(DICTIONARY_TABLE);
+                writeLong(outputStream, originalFileSize);
+                writeInt(outputStream, dictionary.id);
+                writeCompressedData(filePath, outputStream, encodeTable, null);
+            }
+            METRICS.transferred(originalFileSize, new File(newFilePath).length());
+            System.out.println("Compression ratio: " + (double) new File(newFilePath).length() / originalFileSize);
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        }
+        return true;
+    }
+
+    private void compressSampled(String filePath, Histogram frequencies) {
+        long originalFileSize = new File(filePath).length();
+        String newFilePath = createFilePath(filePath);
+        try {
+            if (frequencies == null) {
+                frequencies = sampleFrequencyTable(filePath, originalFileSize);
+            }
+            long escapeKey = unseenKey(frequencies);
+            if (escapeKey >= 0) {
+                frequencies.add(escapeKey, estimatedUnseenCount(frequencies));
+            }
+            HuffmanTable table = buildHuffmanTree(frequencies);
+            EncodeTable encodeTable;
+            try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.TABLE)) {
+                encodeTable = escapeKey >= 0 ? table.encodeTable(escapeKey) : table.encodeTable();
+            }
+
+            try (OutputStream outputStream = outputStream(new FileOutputStream(newFilePath))) {
+                outputStream.write(SAMPLED);
+                writeLong(outputStream, originalFileSize);
+                // the escape symbol, if the sample did not have every possible symbol
+                outputStream.write(escapeKey >= 0 ? 1 : 0);
+                if (escapeKey >= 0) {
+                    byte[] escapeSymbol = new byte[numberOfBytes];
+                    SymbolKey.unpack(escapeKey, numberOfBytes, escapeSymbol, 0);
+                    outputStream.write(escapeSymbol);
+                }
+                table.write(outputStream);
+
+                BitWriter bitWriter = new BitWriter(outputStream);
+                try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.ENCODE)) {
+                    readWindows(filePath, (window, length) -> encodeTable.encodeEscaped(window, 0, length, bitWriter));
+                    bitWriter.flush();
+                }
+                METRICS.encoded((originalFileSize + numberOfBytes - 1) / numberOfBytes, bitWriter.bitsWritten());
+            }
+            METRICS.transferred(originalFileSize, new File(newFilePath).length());
+            System.out.println("Compression ratio: " + (double) new File(newFilePath).length() / originalFileSize);
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        }
+    }
+
+    // counts sampleSize bytes of the file, in chunks that start on a symbol and are spread evenly over the file
+    private Histogram sampleFrequencyTable(String filePath, long originalFileSize) throws IOException {
+        Histogram frequencies = new Histogram(numberOfBytes);
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.HISTOGRAM)) {
+            sampleWindows(filePath, originalFileSize, numberOfBytes,
+                    (chunk, length) -> frequencies.add(chunk, 0, length));
+        }
+        return frequencies;
+    }
+
+    // reads the sample chunks, which start and end on a multiple of alignment bytes
+    private void sampleWindows(String filePath, long originalFileSize, int alignment, WindowConsumer consumer)
+            throws IOException {
+        int chunkSize = Math.max(alignment, SAMPLE_CHUNK - SAMPLE_CHUNK % alignment);
+        long chunkCount = Math.max(1, sampleSize / chunkSize);
+        long stride = originalFileSize / chunkCount;
+        ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+        try (FileChannel input = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            for (long i = 0; i < chunkCount; i++) {
+                long position = i * stride - i * stride % alignment;
+                chunk.clear().limit((int) Math.min(chunkSize, originalFileSize - position));
+                readFully(input, chunk, position);
+                consumer.accept(chunk, chunk.limit());
+            }
+        }
+    }
+
+    // the smallest symbol the histogram has not seen, or -1 if it has seen every possible symbol
+    private static long unseenKey(Histogram frequencies) {
+        long[] keys = new long[frequencies.size()];
+        frequencies.copyTo(keys, new long[keys.length]);
+        Arrays.sort(keys);
+        long candidate = 0;
+        for (long key : keys) {
+            if (key == candidate) {
+                candidate++;
+            } else if (key > candidate) {
+                break;
+            }
+        }
+        int numberOfBytes = frequencies.numberOfBytes();
+        return numberOfBytes < SymbolKey.MAX_BYTES && candidate >> (8 * numberOfBytes) != 0 ? -1 : candidate;
+    }
+
+    // Good-Turing estimate: the symbols not in the sample are about as frequent as the symbols seen only once
+    private static long estimatedUnseenCount(Histogram frequencies) {
+        long[] counts = new long[frequencies.size()];
+        frequencies.copyTo(new long[counts.length], counts);
+        long seenOnce = 0;
+        for (long count : counts) {
+            if (count == 1) {
+                seenOnce++;
+            }
+        }
+        return Math.max(1, seenOnce);
+    }
+
+    // bits the dictionary codes the data in, -1 if it has a symbol the dictionary has no code for
+    private long dictionaryBits(WindowSource source) throws IOException {
+        EncodeTable encodeTable = dictionary.encodeTable();
+        long[] codedBits = {0};
+        source.read((window, length) -> {
+            long bits = codedBits[0] < 0 ? -1 : encodeTable.codedBits(window, 0, length);
+            codedBits[0] = bits < 0 ? -1 : codedBits[0] + bits;
+        });
+        return codedBits[0];
+    }
+
+    /**
+     * Compresses every file under the directory, or every file named in the list file (one path per line) when list
+     * is true, in one run on the given number of threads, see BatchCompressor. Writes a .hc file next to every input,
+     * or one archive with a table of contents next to the directory or list file when archive is true.
+     * .hc files found in the directory are skipped.
+     */
+    public void compressBatch(String path, int n, boolean list, boolean archive, int threads) {
+        if (n < 1 || n > SymbolKey.MAX_BYTES) {
+            throw new IllegalArgumentException("Number of bytes per symbol must be between 1 and " + SymbolKey.MAX_BYTES);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        if (interleaved || transform) {
+            throw new IllegalArgumentException("Batches are not compressed in blocks, so they cannot be interleaved or transformed");
+        }
+        numberOfBytes = n;
+        try {
+            Path source = Paths.get(path).toAbsolutePath().normalize();
+            List<Path> files = new ArrayList<>();
+            Path base;
+            if (list) {
+                base = source.getParent();
+                for (String line : Files.readAllLines(source)) {
+                    if (!line.isBlank()) {
+                        files.add(base.resolve(line.trim()).normalize());
+                    }
+                }
+            } else {
+                base = source;
+                try (Stream<Path> walk = Files.walk(source)) {
+                    walk.filter(Files::isRegularFile).filter(file -> !file.toString().endsWith(".hc")).sorted()
+                            .forEach(files::add);
+                }
+            }
+            String archivePath = archive ? createFilePath(source.toString()) : null;
+            new BatchCompressor(this, threads).run(files, base, archivePath);
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        }
+    }
+
+    /**
+     * Writes the data the source reads as a complete compressed file: with the dictionary ID when a dictionary is
+     * set and fits the data, otherwise with its own canonical code table. Used by BatchCompressor.
+     */
+    void compressImage(WindowSource source, long originalLength, OutputStream outputStream) throws IOException {
+        if (dictionary != null && dictionary.numberOfBytes() == numberOfBytes) {
+            long codedBits = dictionaryBits(source);
+            if (codedBits >= 0 && codedBits / 8 <= originalLength) {
+                outputStream.write(DICTIONARY_TABLE);
+                writeLong(outputStream, originalLength);
+                writeInt(outputStream, dictionary.id);
+                encode(source, dictionary.encodeTable(), outputStream);
+                return;
+            }
+        }
+        Histogram frequencies = new Histogram(numberOfBytes);
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.HISTOGRAM)) {
+            source.read((window, length) -> frequencies.add(window, 0, length));
+        }
+        if (incompressible(frequencies, originalLength)) {
+            writeStored(source, originalLength, outputStream);
+            return;
+        }
+        HuffmanTable table = buildHuffmanTree(frequencies);
+        EncodeTable encodeTable = buildHuffmanCodeTable(table);
+        if (table.headerSize() + calculateCompressedFileSize(frequencies, encodeTable) > STORE_RATIO * originalLength) {
+            writeStored(source, originalLength, outputStream);
+            return;
+        }
+        outputStream.write(CANONICAL_TABLE);
+        writeLong(outputStream, originalLength);
+        table.write(outputStream);
+        encode(source, encodeTable, outputStream);
+    }
+
+    private void encode(WindowSource source, EncodeTable encodeTable, OutputStream outputStream) throws IOException {
+        BitWriter bitWriter = new BitWriter(outputStream);
+        long[] symbols = {0};
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.ENCODE)) {
+            source.read((window, length) -> {
+                encodeTable.encode(window, 0, length, bitWriter);
+                symbols[0] += (length + numberOfBytes - 1) / numberOfBytes;
+            });
+            bitWriter.flush();
+        }
+        METRICS.encoded(symbols[0], bitWriter.bitsWritten());
+    }
+
+    /**
+     * Splits the file into blocks of blockSize bytes that are compressed independently, each with its own canonical
+     * code table. Counting and encoding run in parallel on a ForkJoinPool with one thread per core, and the block
+     * index at the start of the compressed file (offset and bit length of every block) lets decompression run in
+     * parallel too. A block that would not shrink below STORE_RATIO of its size is kept as it is, with STORED_BLOCK
+     * as its bit length, and copied straight through by the decoder.
+     * Every block has a code table of its own, counted on the whole block, so a dictionary, sampling and sync points
+     * are rejected.
+     */
+    public void compressBlocks(String filePath, int n, int blockSize) {
+        if (n < 1 || n > SymbolKey.MAX_BYTES) {
+            throw new IllegalArgumentException("Number of bytes per symbol must be between 1 and " + SymbolKey.MAX_BYTES);
+        }
+        if (dictionary != null || sampleSize > 0 || syncInterval > 0) {
+            throw new IllegalArgumentException("Blocks have code tables of their own, without a dictionary, sampling "
+                    + "or sync points");
+        }
+        numberOfBytes = n;
+        // blocks hold whole symbols
+        blockSize = Math.max(n, blockSize - blockSize % n);
+
+        File file = new File(filePath);
+        long originalFileSize = file.length();
+        int blockCount = (int) ((originalFileSize + blockSize - 1) / blockSize);
+        String newFilePath = createFilePath(filePath);
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try (FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(Paths.get(newFilePath), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate((transform ? 1 : 0) + 1 + 8 + 4 + 4 + 16 * blockCount);
+            if (transform) {
+                header.put((byte) TRANSFORMED_BLOCKS);
+            }
+            header.put((byte) (interleaved ? INTERLEAVED_BLOCKS : BLOCKS)).putLong(originalFileSize).putInt(blockSize).putInt(blockCount);
+            long position = header.capacity();
+
+            // keep a bounded number of blocks in flight and write them in order as they finish
+            Deque<ForkJoinTask<CompressedBlock>> inFlight = new ArrayDeque<>();
+            int nextBlock = 0;
+            for (int block = 0; block < blockCount; block++) {
+                while (nextBlock < blockCount && inFlight.size() < 2 * pool.getParallelism()) {
+                    long blockStart = (long) nextBlock * blockSize;
+                    int blockLength = (int) Math.min(blockSize, originalFileSize - blockStart);
+                    inFlight.add(pool.submit(() -> compressBlock(input, blockStart, blockLength)));
+                    nextBlock++;
+                }
+                CompressedBlock compressed = inFlight.poll().join();
+                header.putLong(position).putLong(compressed.bitLength);
+                writeFully(output, ByteBuffer.wrap(compressed.data), position);
+                position += compressed.data.length;
+            }
+
+            header.flip();
+            writeFully(output, header, 0);
+            METRICS.transferred(originalFileSize, position);
+            System.out.println("Compression ratio: " + (double) position / originalFileSize);
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Compresses the file in a single pass with a code that adapts as the data is read, see
+     * AdaptiveHuffmanOutputStream. rebuildInterval is the number of bytes between two rebuilds of the code.
+     */
+    public void compressAdaptive(String filePath, int n, int rebuildInterval) {
+        if (n < 1 || n > SymbolKey.MAX_BYTES) {
+            throw new IllegalArgumentException("Number of bytes per symbol must be between 1 and " + SymbolKey.MAX_BYTES);
+        }
+        numberOfBytes = n;
+        String newFilePath = createFilePath(filePath);
+        // counting, rebuilding and encoding are interleaved, so all of it is encode time
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.ENCODE);
+             AdaptiveHuffmanOutputStream outputStream = new AdaptiveHuffmanOutputStream(
+                new FileOutputStream(newFilePath), n, rebuildInterval)) {
+            readWindows(filePath, (window, length) -> {
+                byte[] chunk = new byte[Math.min(length, 64 * 1024)];
+                for (int position = 0; position < length; position += chunk.length) {
+                    int count = Math.min(chunk.length, length - position);
+                    window.get(position, chunk, 0, count);
+                    outputStream.write(chunk, 0, count);
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        }
+        long originalFileSize = new File(filePath).length();
+        long compressedFileSize = new File(newFilePath).length();
+        METRICS.encoded((originalFileSize + n - 1) / n, 8 * compressedFileSize);
+        METRICS.transferred(originalFileSize, compressedFileSize);
+        System.out.println("Compression ratio: " + (double) compressedFileSize / originalFileSize);
+    }
+
+    private CompressedBlock compressBlock(FileChannel input, long blockStart, int blockLength) throws IOException {
+        MappedByteBuffer block = input.map(FileChannel.MapMode.READ_ONLY, blockStart, blockLength);
+
+        Histogram frequencies = new Histogram(numberOfBytes);
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.HISTOGRAM)) {
+            frequencies.add(block, 0, blockLength);
+        }
+        // the data that is Huffman coded, the block or what the transforms made of it
+        ByteBuffer data = block;
+        int dataLength = blockLength;
+        TransformPipeline pipeline = null;
+        if (transform) {
+            byte[] bytes = new byte[blockLength];
+            block.get(0, bytes, 0, blockLength);
+            try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.TRANSFORM)) {
+                pipeline = TransformPipeline.choose(bytes, blockLength, numberOfBytes, frequencies);
+            }
+            data = ByteBuffer.wrap(pipeline.data());
+            dataLength = pipeline.length();
+            frequencies = pipeline.frequencies();
+        }
+        if (incompressible(frequencies, blockLength)) {
+            return storeBlock(block, blockLength);
+        }
+        HuffmanTable table = buildHuffmanTree(frequencies);
+        EncodeTable encodeTable = buildHuffmanCodeTable(table);
+        double codedSize = table.headerSize() + calculateCompressedFileSize(frequencies, encodeTable)
+                + (interleaved ? 4 * (INTERLEAVED_STREAMS - 1) : 0) + (pipeline != null ? pipeline.headerSize() : 0);
+        if (codedSize > STORE_RATIO * blockLength) {
+            return storeBlock(block, blockLength);
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(blockLength / 2 + 1024);
+        if (pipeline != null) {
+            pipeline.write(outputStream);
+        }
+        table.write(outputStream);
+        CompressedBlock compressed;
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.ENCODE)) {
+            if (interleaved) {
+                compressed = compressInterleaved(data, dataLength, encodeTable, outputStream);
+            } else {
+                BitWriter bitWriter = new BitWriter(outputStream);
+                encodeTable.encode(data, 0, dataLength, bitWriter);
+                bitWriter.flush();
+                compressed = new CompressedBlock(outputStream.toByteArray(), bitWriter.bitsWritten());
+            }
+        }
+        METRICS.encoded((dataLength + numberOfBytes - 1) / numberOfBytes, compressed.bitLength);
+        return compressed;
+    }
+
+    private static CompressedBlock storeBlock(ByteBuffer data, int blockLength) {
+        byte[] stored = new byte[blockLength];
+        data.get(0, stored, 0, blockLength);
+        return new CompressedBlock(stored, STORED_BLOCK);
+    }
+
+    // the block is cut into INTERLEAVED_STREAMS runs of symbols with their own bit stream, written after a jump
+    // table with the byte length of every stream but the last
+    private CompressedBlock compressInterleaved(ByteBuffer data, int blockLength, EncodeTable encodeTable,
+                                               ByteArrayOutputStream outputStream) throws IOException {
+        int symbolCount = (blockLength + numberOfBytes - 1) / numberOfBytes;
+        int segmentBytes = (symbolCount + INTERLEAVED_STREAMS - 1) / INTERLEAVED_STREAMS * numberOfBytes;
+        ByteArrayOutputStream[] streams = new ByteArrayOutputStream[INTERLEAVED_STREAMS];
+        long bitLength = 0;
+        for (int stream = 0; stream < INTERLEAVED_STREAMS; stream++) {
+            streams[stream] = new ByteArrayOutputStream(blockLength / (2 * INTERLEAVED_STREAMS) + 64);
+            BitWriter bitWriter = new BitWriter(streams[stream]);
+            int start = (int) Math.min(blockLength, (long) stream * segmentBytes);
+            int end = (int) Math.min(blockLength, (long) (stream + 1) * segmentBytes);
+            encodeTable.encode(data, start, end, bitWriter);
+            bitWriter.flush();
+            bitLength += bitWriter.bitsWritten();
+        }
+        for (int stream = 0; stream < INTERLEAVED_STREAMS - 1; stream++) {
+            writeInt(outputStream, streams[stream].size());
+        }
+        for (ByteArrayOutputStream stream : streams) {
+            stream.writeTo(outputStream);
+        }
+        return new CompressedBlock(outputStream.toByteArray(), bitLength);
+    }
+
+    private void decompressBlocks(String filePath, InputStream inputStream, long originalFileSize,
+                                  String extractedFilePath, boolean interleaved, boolean transformed)
+            throws IOException {
+        int blockSize = readInt(inputStream);
+        int blockCount = readInt(inputStream);
+        long[] offsets = new long[blockCount + 1];
+        boolean[] stored = new boolean[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            offsets[block] = readLong(inputStream);
+            // bit length of the block, the decoder stops on the symbol count instead
+            stored[block] = readLong(inputStream) == STORED_BLOCK;
+        }
+        offsets[blockCount] = new File(filePath).length();
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try (FileChannel input = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(Paths.get(extractedFilePath), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // blocks write their own output, joining in order only bounds the number of blocks in memory
+            Deque<ForkJoinTask<?>> inFlight = new ArrayDeque<>();
+            int nextBlock = 0;
+            for (int block = 0; block < blockCount; block++) {
+                while (nextBlock < blockCount && inFlight.size() < 2 * pool.getParallelism()) {
+                    long compressedStart = offsets[nextBlock];
+                    int compressedLength = (int) (offsets[nextBlock + 1] - compressedStart);
+                    long blockStart = (long) nextBlock * blockSize;
+                    int blockLength = (int) Math.min(blockSize, originalFileSize - blockStart);
+                    boolean storedBlock = stored[nextBlock];
+                    inFlight.add(pool.submit(() -> {
+                        if (storedBlock) {
+                            copyStored(input, compressedStart, output, blockStart, blockLength);
+                        } else {
+                            decompressBlock(input, compressedStart, compressedLength, output, blockStart,
+                                    blockLength, interleaved, transformed);
+                        }
+                        return null;
+                    }));
+                    nextBlock++;
+                }
+                inFlight.poll().join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void decompressBlock(FileChannel input, long compressedStart, int compressedLength,
+                                 FileChannel output, long blockStart, int blockLength, boolean interleaved,
+                                 boolean transformed) throws IOException {
+        byte[] data = buffers.acquire(compressedLength);
+        byte[] block = null;
+        try {
+            readFully(input, ByteBuffer.wrap(data, 0, compressedLength), compressedStart);
+            if (transformed) {
+                byte[] original = decodeTransformedBlock(data, compressedLength, numberOfBytes, blockLength,
+                        interleaved, buffers);
+                writeFully(output, ByteBuffer.wrap(original, 0, blockLength), blockStart);
+                return;
+            }
+            block = buffers.acquire(blockLength + numberOfBytes);
+            block = decodeBlock(data, 0, compressedLength, numberOfBytes, blockLength, blockLength, interleaved,
+                    block);
+            writeFully(output, ByteBuffer.wrap(block, 0, blockLength), blockStart);
+        } finally {
+            buffers.release(data);
+            if (block != null) {
+                buffers.release(block);
+            }
+        }
+    }
+
+    // a stored block is copied as it is
+    private void copyStored(FileChannel input, long start, FileChannel output, long outputPosition, int length)
+            throws IOException {
+        byte[] data = buffers.acquire(length);
+        try {
+            readFully(input, ByteBuffer.wrap(data, 0, length), start);
+            writeFully(output, ByteBuffer.wrap(data, 0, length), outputPosition);
+        } finally {
+            buffers.release(data);
+        }
+    }
+
+    /**
+     * Decodes a compressed block (code table and payload) of blockLength bytes. Returns at least the first limit
+     * bytes of the block, an interleaved block is always decoded whole.
+     */
+    static byte[] decodeBlock(byte[] data, int numberOfBytes, int blockLength, int limit, boolean interleaved)
+            throws IOException {
+        return decodeBlock(data, 0, data.length, numberOfBytes, blockLength, limit, interleaved, null);
+    }
+
+    /**
+     * Decodes a block of a TRANSFORMED_BLOCKS file whole and undoes its transforms, the first blockLength bytes
+     * of the result are the original block. buffers lends the array the transformed data is decoded into, if any.
+     */
+    static byte[] decodeTransformedBlock(byte[] data, int dataLength, int numberOfBytes, int blockLength,
+                                         boolean interleaved, BufferPool buffers) throws IOException {
+        TransformPipeline pipeline = TransformPipeline.read(data, blockLength);
+        int length = pipeline.length();
+        byte[] decoded = buffers != null ? buffers.acquire(length + numberOfBytes) : null;
+        try {
+            decoded = decodeBlock(data, pipeline.headerSize(), dataLength, numberOfBytes, length, length,
+                    interleaved, decoded);
+            if (pipeline.isEmpty()) {
+                // the decoded block is the original, copied out of the lent array
+                return Arrays.copyOf(decoded, blockLength);
+            }
+            byte[] original;
+            try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.TRANSFORM)) {
+                original = pipeline.inverse(decoded);
+            }
+            if (original.length != blockLength) {
+                throw new IOException("Transformed block has " + original.length + " bytes instead of " + blockLength);
+            }
+            return original;
+        } finally {
+            if (buffers != null && decoded != null) {
+                buffers.release(decoded);
+            }
+        }
+    }
+
+    // the block is in bytes [dataStart, dataLength) of data and is decoded into block if it is large enough
+    private static byte[] decodeBlock(byte[] data, int dataStart, int dataLength, int numberOfBytes, int blockLength,
+                                      int limit, boolean interleaved, byte[] block) throws IOException {
+        ByteArrayInputStream tableStream = new ByteArrayInputStream(data, dataStart, dataLength - dataStart);
+        TableDecoder decoder;
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.TABLE)) {
+            decoder = HuffmanTable.read(tableStream, numberOfBytes).decoder();
+        }
+        int payloadStart = dataLength - tableStream.available();
+
+        int symbolCount = (blockLength + numberOfBytes - 1) / numberOfBytes;
+        if (interleaved) {
+            // the streams start after the jump table
+            BitReader[] readers = new BitReader[INTERLEAVED_STREAMS];
+            ByteBuffer jumpTable = ByteBuffer.wrap(data, payloadStart, 4 * (INTERLEAVED_STREAMS - 1));
+            int streamStart = payloadStart + jumpTable.remaining();
+            for (int stream = 0; stream < INTERLEAVED_STREAMS; stream++) {
+                int streamEnd = stream < INTERLEAVED_STREAMS - 1 ? streamStart + jumpTable.getInt() : dataLength;
+                if (streamEnd < streamStart || streamEnd > dataLength) {
+                    throw new IOException("Invalid jump table in compressed block");
+                }
+                readers[stream] = new BitReader(data, streamStart, streamEnd);
+                streamStart = streamEnd;
+            }
+            if (block == null || block.length < symbolCount * numberOfBytes) {
+                block = new byte[symbolCount * numberOfBytes];
+            }
+            int segmentSymbols = (symbolCount + INTERLEAVED_STREAMS - 1) / INTERLEAVED_STREAMS;
+            try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.DECODE)) {
+                decoder.decodeInterleaved(readers, block, symbolCount, segmentSymbols);
+            }
+            METRICS.decoded(symbolCount);
+            return block;
+        }
+        // only the symbols up to limit
+        int decodedSymbols = (Math.min(limit, blockLength) + numberOfBytes - 1) / numberOfBytes;
+        int lastSymbolBytes = decodedSymbols == symbolCount ? blockLength - (symbolCount - 1) * numberOfBytes
+                : numberOfBytes;
+        if (block == null || block.length < (decodedSymbols - 1) * numberOfBytes + lastSymbolBytes) {
+            block = new byte[(decodedSymbols - 1) * numberOfBytes + lastSymbolBytes];
+        }
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.DECODE)) {
+            decoder.decode(new BitReader(data, payloadStart, dataLength), block, 0, decodedSymbols, lastSymbolBytes);
+        }
+        METRICS.decoded(decodedSymbols);
+        return block;
+    }
+
+    /**
+     * Decodes the segments between two sync points in parallel, every segment is written at its own place in the
+     * output file.
+     */
+    private void decompressIndexed(String filePath, long payloadStart, TableDecoder decoder, int syncInterval,
+                                   long[] syncOffsets, String extractedFilePath, long symbolCount, int lastSymbolBytes)
+            throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try (FileChannel input = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(Paths.get(extractedFilePath), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long payloadEnd = input.size();
+            // joining in order only bounds the number of segments in memory
+            Deque<ForkJoinTask<?>> inFlight = new ArrayDeque<>();
+            int nextSegment = 0;
+            for (int segment = 0; segment < syncOffsets.length; segment++) {
+                while (nextSegment < syncOffsets.length && inFlight.size() < 2 * pool.getParallelism()) {
+                    boolean last = nextSegment == syncOffsets.length - 1;
+                    long firstSymbol = (long) nextSegment * syncInterval;
+                    int segmentSymbols = (int) Math.min(syncInterval, symbolCount - firstSymbol);
+                    long bitOffset = syncOffsets[nextSegment];
+                    long compressedEnd = last ? payloadEnd : payloadStart + (syncOffsets[nextSegment + 1] + 7) / 8;
+                    inFlight.add(pool.submit(() -> {
+                        decompressSegment(input, payloadStart, bitOffset, compressedEnd, decoder, output,
+                                firstSymbol * numberOfBytes, segmentSymbols, last ? lastSymbolBytes : numberOfBytes);
+                        return null;
+                    }));
+                    nextSegment++;
+                }
+                inFlight.poll().join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void decompressSegment(FileChannel input, long payloadStart, long bitOffset, long compressedEnd,
+                                   TableDecoder decoder, FileChannel output, long outputPosition, int symbolCount,
+                                   int lastSymbolBytes) throws IOException {
+        long compressedStart = payloadStart + bitOffset / 8;
+        int compressedLength = (int) (compressedEnd - compressedStart);
+        byte[] data = buffers.acquire(compressedLength);
+        byte[] segment = buffers.acquire((symbolCount - 1) * numberOfBytes + lastSymbolBytes);
+        try {
+            readFully(input, ByteBuffer.wrap(data, 0, compressedLength), compressedStart);
+
+            BitReader reader = new BitReader(data, 0, compressedLength);
+            // the segment starts inside this byte
+            reader.read((int) (bitOffset % 8));
+            int length;
+            try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.DECODE)) {
+                length = decoder.decode(reader, segment, 0, symbolCount, lastSymbolBytes);
+            }
+            METRICS.decoded(symbolCount);
+            writeFully(output, ByteBuffer.wrap(segment, 0, length), outputPosition);
+        } finally {
+            buffers.release(data);
+            buffers.release(segment);
+        }
+    }
+
+    // the bytes of a stored file, copied by the operating system where it can
+    private static void copyStored(FileChannel input, long start, long length, WritableByteChannel output)
+            throws IOException {
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.IO_WAIT)) {
+            for (long copied = 0; copied < length; ) {
+                long transferred = input.transferTo(start + copied, length - copied, output);
+                if (transferred <= 0) {
+                    throw new EOFException("Unexpected end of file");
+                }
+                copied += transferred;
+            }
+        }
+    }
+
+    private void decompressStream(InputStream inputStream, String extractedFilePath) throws IOException {
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.DECODE);
+             BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(extractedFilePath))) {
+            inputStream.transferTo(outputStream);
+        }
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.IO_WAIT)) {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of file");
+                }
+                position += read;
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.IO_WAIT)) {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
     }
 
     public void decompress(String filePath) {
         String extractedFilePath = extractFilepath(filePath);
 
-        try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(filePath))) {
-            int numberOfSymbols = readInt(inputStream);
+        try (CountingInputStream inputStream = new CountingInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+            int format = inputStream.read();
+            // the block format follows, the transforms of a block are read with the block
+            boolean transformed = format == TRANSFORMED_BLOCKS;
+            if (transformed) {
+                format = inputStream.read();
+                if (format != BLOCKS && format != INTERLEAVED_BLOCKS) {
+                    throw new IOException("Unknown transformed block format: " + format);
+                }
+            }
+            if (format == STREAM) {
+                decompressStream(new HuffmanInputStream(inputStream, inputStream.read()), extractedFilePath);
+                return;
+            }
+            if (format == ADAPTIVE) {
+                decompressStream(new AdaptiveHuffmanInputStream(inputStream, inputStream.read()), extractedFilePath);
+                return;
+            }
+            if (format == ARCHIVE) {
+                decompressArchive(filePath, extractedFilePath);
+                return;
+            }
+            long originalFileSize = readLong(inputStream);
+            long symbolCount = (originalFileSize + numberOfBytes - 1) / numberOfBytes;
+            int lastSymbolBytes = (int) (originalFileSize - (symbolCount - 1) * numberOfBytes);
+
+            if (format == STORED) {
+                try (FileChannel input = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+                     FileOutputStream outputStream = new FileOutputStream(extractedFilePath)) {
+                    copyStored(input, inputStream.count(), originalFileSize, outputStream.getChannel());
+                }
+                return;
+            }
+
+            if (format == BLOCKS || format == INTERLEAVED_BLOCKS) {
+                decompressBlocks(filePath, inputStream, originalFileSize, extractedFilePath,
+                        format == INTERLEAVED_BLOCKS, transformed);
+                return;
+            }
+
+            if (format == INDEXED) {
+                TableDecoder decoder = readCanonicalCodeTable(inputStream);
+                int syncInterval = readInt(inputStream);
+                long[] syncOffsets = new long[readInt(inputStream)];
+                for (int i = 0; i < syncOffsets.length; i++) {
+                    syncOffsets[i] = readLong(inputStream);
+                }
+                decompressIndexed(filePath, inputStream.count(), decoder, syncInterval, syncOffsets, extractedFilePath,
+                        symbolCount, lastSymbolBytes);
+                return;
+            }
+
+            if (format == SAMPLED) {
+                TableDecoder decoder = readSampledCodeTable(inputStream);
+                decompressFile(filePath, inputStream.count(), decoder, extractedFilePath, symbolCount, lastSymbolBytes);
+                return;
+            }
+
+            if (format == DICTIONARY_TABLE) {
+                TableDecoder decoder = dictionaryCache(filePath).get(readInt(inputStream)).decoder();
+                decompressFile(filePath, inputStream.count(), decoder, extractedFilePath, symbolCount, lastSymbolBytes);
+                return;
+            }
+
+            if (format == CANONICAL_TABLE && !DEBUG_TREE_DECODE) {
+                // Build the lookup tables straight from the code lengths
+                TableDecoder decoder = readCanonicalCodeTable(inputStream);
+                decompressFile(filePath, inputStream.count(), decoder, extractedFilePath, symbolCount, lastSymbolBytes);
+                return;
+            }
 
             // Read the Huffman code table
-            Map<Symbol, MyBitSet> huffmanCodeTable = readHuffmanCodeTable(inputStream, numberOfSymbols);
+            Map<Symbol, MyBitSet> huffmanCodeTable;
+            if (format == CANONICAL_TABLE) {
+                huffmanCodeTable = readCanonicalCodeTableAsMap(inputStream);
+            } else if (format == EXPLICIT_TABLE) {
+                huffmanCodeTable = readHuffmanCodeTable(inputStream, readInt(inputStream));
+            } else {
+                throw new IOException("Unknown compressed file format: " + format);
+            }
+
+            if (DEBUG_TREE_DECODE) {
+                // Initialize the priority queue
+                PriorityQueue<DecompressedNode> Q = new PriorityQueue<>();
+                huffmanCodeTable.forEach((symbol, bitSet) -> Q.add(new DecompressedNode(symbol, bitSet)));
 
-            // Initialize the priority queue
-            PriorityQueue<DecompressedNode> Q = new PriorityQueue<>();
-            huffmanCodeTable.forEach((symbol, bitSet) -> Q.add(new DecompressedNode(symbol, bitSet)));
+                // Build the reverse Huffman tree
+                DecompressedNode root = new DecompressedNode(null, new MyBitSet());
+                buildReverseHuffmanTree(Q, root);
 
-            // Build the reverse Huffman tree
-            DecompressedNode root = new DecompressedNode(null, new MyBitSet());
-            buildReverseHuffmanTree(Q, root);
+                // Decompress the file
+                decompressFileWithTree(inputStream, root, extractedFilePath, symbolCount, lastSymbolBytes);
+                return;
+            }
 
-            // Decompress the file
-            decompressFile(inputStream, root, extractedFilePath);
+            // Build the lookup tables and decompress the file
+            TableDecoder decoder = buildTableDecoder(huffmanCodeTable);
+            decompressFile(filePath, inputStream.count(), decoder, extractedFilePath, symbolCount, lastSymbolBytes);
         } catch (IOException e) {
             e.printStackTrace(); // Handle or log the exception appropriately
+        } finally {
+            // an archive counts its entries one by one
+            File extracted = new File(extractedFilePath);
+            if (extracted.isFile()) {
+                METRICS.transferred(new File(filePath).length(), extracted.length());
+            }
         }
     }
 
-    private int readInt(BufferedInputStream inputStream) throws IOException {
+    private DictionaryCache dictionaryCache(String filePath) {
+        return DictionaryCache.of(dictionaries, dictionaryDirectory, filePath);
+    }
+
+    private int readInt(InputStream inputStream) throws IOException {
         int result = 0;
         for (int i = 0; i < 4; i++) {
             int byteValue = inputStream.read();
@@ -70,7 +1286,19 @@ public class FileHandler {
         return result;
     }
 
-    private Map<Symbol, MyBitSet> readHuffmanCodeTable(BufferedInputStream inputStream, int numberOfSymbols)
+    private long readLong(InputStream inputStream) throws IOException {
+        long high = readInt(inputStream) & 0xFFFFFFFFL;
+        long low = readInt(inputStream) & 0xFFFFFFFFL;
+        return (high << 32) | low;
+    }
+
+    private void writeLong(OutputStream outputStream, long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            outputStream.write((int) (value >> shift) & 0xFF);
+        }
+    }
+
+    private Map<Symbol, MyBitSet> readHuffmanCodeTable(InputStream inputStream, int numberOfSymbols)
             throws IOException {
         Map<Symbol, MyBitSet> huffmanCodeTable = new HashMap<>();
 
@@ -93,6 +1321,52 @@ public class FileHandler {
         return huffmanCodeTable;
     }
 
+    // canonical table: max code length, the number of symbols of each length, then the symbols sorted by (length, symbol)
+    private TableDecoder readCanonicalCodeTable(InputStream inputStream) throws IOException {
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.TABLE)) {
+            return HuffmanTable.read(inputStream, numberOfBytes).decoder();
+        }
+    }
+
+    // escape flag, escape symbol if the flag is set, then the canonical table
+    static TableDecoder readSampledCodeTable(InputStream inputStream, int numberOfBytes) throws IOException {
+        boolean escaped = inputStream.read() == 1;
+        byte[] escapeSymbol = inputStream.readNBytes(escaped ? numberOfBytes : 0);
+        HuffmanTable table = HuffmanTable.read(inputStream, numberOfBytes);
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.TABLE)) {
+            return escaped ? table.decoder(SymbolKey.pack(escapeSymbol, 0, numberOfBytes, escapeSymbol.length))
+                    : table.decoder();
+        }
+    }
+
+    private TableDecoder readSampledCodeTable(InputStream inputStream) throws IOException {
+        return readSampledCodeTable(inputStream, numberOfBytes);
+    }
+
+    private Map<Symbol, MyBitSet> readCanonicalCodeTableAsMap(InputStream inputStream) throws IOException {
+        int maxCodeLength = inputStream.read();
+        int[] lengthCounts = new int[maxCodeLength + 1];
+        int numberOfSymbols = 0;
+        for (int length = 1; length <= maxCodeLength; length++) {
+            lengthCounts[length] = readInt(inputStream);
+            numberOfSymbols += lengthCounts[length];
+        }
+        int[] lengths = new int[numberOfSymbols];
+        int i = 0;
+        for (int length = 1; length <= maxCodeLength; length++) {
+            for (int j = 0; j < lengthCounts[length]; j++) {
+                lengths[i++] = length;
+            }
+        }
+        long[] codes = CanonicalCode.assignCodes(lengths);
+
+        Map<Symbol, MyBitSet> huffmanCodeTable = new LinkedHashMap<>();
+        for (i = 0; i < numberOfSymbols; i++) {
+            huffmanCodeTable.put(new Symbol(inputStream.readNBytes(numberOfBytes)), new MyBitSet(codes[i], lengths[i]));
+        }
+        return huffmanCodeTable;
+    }
+
     private MyBitSet byteArrayToMyBitSet(byte[] huffmanCodeBytes, int huffmanCodeLength) {
         MyBitSet huffmanCode = new MyBitSet();
         for (int i = 0; i < huffmanCodeLength; i++) {
@@ -104,57 +1378,140 @@ public class FileHandler {
         return huffmanCode;
     }
 
-    private void decompressFile(BufferedInputStream inputStream, DecompressedNode root, String extractedFilePath)
-            throws IOException {
+    private TableDecoder buildTableDecoder(Map<Symbol, MyBitSet> huffmanCodeTable) {
+        byte[] symbols = new byte[huffmanCodeTable.size() * numberOfBytes];
+        long[] codes = new long[huffmanCodeTable.size()];
+        int[] lengths = new int[huffmanCodeTable.size()];
+        int i = 0;
+        for (Map.Entry<Symbol, MyBitSet> entry : huffmanCodeTable.entrySet()) {
+            System.arraycopy(entry.getKey().value, 0, symbols, i * numberOfBytes, numberOfBytes);
+            codes[i] = entry.getValue().toLong();
+            lengths[i] = entry.getValue().length();
+            i++;
+        }
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.TABLE)) {
+            return new TableDecoder(numberOfBytes, symbols, codes, lengths);
+        }
+    }
+
+    /**
+     * Extracts every file of an archive written by BatchCompressor into the directory extractedFilePath, in parallel.
+     */
+    private void decompressArchive(String filePath, String extractedFilePath) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<long[]> entries = new ArrayList<>();
+        try (FileChannel input = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer trailer = ByteBuffer.allocate(8);
+            readFully(input, trailer, input.size() - 8);
+            DataInputStream contents = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(input.position(trailer.getLong(0)))));
+            int count = contents.readInt();
+            for (int i = 0; i < count; i++) {
+                names.add(contents.readUTF());
+                // offset, compressed length, original length
+                entries.add(new long[]{contents.readLong(), contents.readLong(), contents.readLong()});
+            }
+        }
+
+        Path directory = Paths.get(extractedFilePath).toAbsolutePath().normalize();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            Deque<ForkJoinTask<?>> inFlight = new ArrayDeque<>();
+            int nextEntry = 0;
+            for (int entry = 0; entry < entries.size(); entry++) {
+                while (nextEntry < entries.size() && inFlight.size() < 2 * pool.getParallelism()) {
+                    Path target = directory.resolve(names.get(nextEntry)).normalize();
+                    if (!target.startsWith(directory) || target.equals(directory)) {
+                        throw new IOException("Invalid archive entry name: " + names.get(nextEntry));
+                    }
+                    long[] location = entries.get(nextEntry);
+                    inFlight.add(pool.submit(() -> {
+                        Files.createDirectories(target.getParent());
+                        decompressEntry(filePath, location[0], location[0] + location[1], target.toString());
+                        return null;
+                    }));
+                    nextEntry++;
+                }
+                inFlight.poll().join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // an archive entry is a compressed file with one code table or a dictionary ID, found at [start, end)
+    private void decompressEntry(String filePath, long start, long end, String extractedFilePath) throws IOException {
+        try (FileChannel input = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+             CountingInputStream header = new CountingInputStream(new BufferedInputStream(
+                     Channels.newInputStream(input.position(start))));
+             OutputStream outputStream = outputStream(new FileOutputStream(extractedFilePath))) {
+            int format = header.read();
+            long originalFileSize = readLong(header);
+            if (format == STORED) {
+                copyStored(input, start + header.count(), originalFileSize, Channels.newChannel(outputStream));
+                METRICS.transferred(end - start, originalFileSize);
+                return;
+            }
+            TableDecoder decoder;
+            if (format == CANONICAL_TABLE) {
+                decoder = readCanonicalCodeTable(header);
+            } else if (format == DICTIONARY_TABLE) {
+                decoder = dictionaryCache(filePath).get(readInt(header)).decoder();
+            } else {
+                throw new IOException("Unknown archive entry format: " + format);
+            }
+            long symbolCount = (originalFileSize + numberOfBytes - 1) / numberOfBytes;
+            int lastSymbolBytes = (int) (originalFileSize - (symbolCount - 1) * numberOfBytes);
+            try (ReadAhead windows = new ReadAhead(input, start + header.count(), end, windowSize, ioBuffers);
+                 CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.DECODE)) {
+                decoder.decode(new BitReader(windows), outputStream, symbolCount, lastSymbolBytes);
+            }
+            METRICS.decoded(symbolCount);
+            METRICS.transferred(end - start, originalFileSize);
+        }
+    }
+
+    // the payload starts right after the header and is memory mapped one window at a time, read ahead of the decoder
+    // while the output is written behind it
+    private void decompressFile(String filePath, long payloadStart, TableDecoder decoder, String extractedFilePath,
+                                long symbolCount, int lastSymbolBytes) throws IOException {
+        try (FileChannel input = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+             OutputStream outputStream = outputStream(new FileOutputStream(extractedFilePath))) {
+            try (ReadAhead windows = new ReadAhead(input, payloadStart, input.size(), windowSize, ioBuffers);
+                 CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.DECODE)) {
+                decoder.decode(new BitReader(windows), outputStream, symbolCount, lastSymbolBytes);
+            }
+            METRICS.decoded(symbolCount);
+        }
+    }
+
+    private void decompressFileWithTree(InputStream inputStream, DecompressedNode root, String extractedFilePath,
+                                        long symbolCount, int lastSymbolBytes) throws IOException {
         try (BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(extractedFilePath))) {
-            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] buffer = new byte[64 * 1024];
             int bytesRead;
             DecompressedNode current = root;
+            long decodedSymbols = 0;
 
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
+            while (decodedSymbols < symbolCount && (bytesRead = inputStream.read(buffer)) != -1) {
 
                 int i = 0;
                 int totalBits = bytesRead * 8;
-                current = root;
-                MyBitSet symbolBits = new MyBitSet();
-
-                while (i < totalBits) {
-                    if (current.left == null && current.right == null) {
-                        if (current.code.toLong() == symbolBits.toLong()) {
-                            outputStream.write(current.symbol.value);
-                            current = root;
-                            symbolBits = new MyBitSet();
-                        } else {
-                            symbolBits = new MyBitSet();
-                            current = root;
-                        }
-                    }
 
+                while (i < totalBits && decodedSymbols < symbolCount) {
                     boolean bit = (buffer[i / 8] & (1 << (i % 8))) != 0;
-                    if (bit) {
-                        symbolBits.addOne();
-                        current = current.right;
-                    } else {
-                        symbolBits.addZero();
-                        current = current.left;
-                    }
+                    current = bit ? current.right : current.left;
                     i++;
-                }
-            }
-        }
-    }
 
-    private MyBitSet byteToMyBitSet(byte currentByte) {
-        MyBitSet currentByteBits = new MyBitSet();
-        for (int j = 0; j < 8; j++) {
-            boolean bit = (currentByte & (1 << j)) != 0;
-            if (bit) {
-                currentByteBits.addOne();
-            } else {
-                currentByteBits.addZero();
+                    if (current.left == null && current.right == null) {
+                        decodedSymbols++;
+                        int symbolBytes = decodedSymbols == symbolCount ? lastSymbolBytes : numberOfBytes;
+                        outputStream.write(current.symbol.value, 0, symbolBytes);
+                        current = root;
+                    }
+                }
             }
         }
-        return currentByteBits;
     }
 
     private void buildReverseHuffmanTree(PriorityQueue<DecompressedNode> Q, DecompressedNode root) {
@@ -189,23 +1546,11 @@ public class FileHandler {
     }
 
 
-    private Map<Symbol, Integer> frequencyTable(String filePath) {
-        Map<Symbol, Integer> frequencies = new HashMap<>();
+    Histogram frequencyTable(String filePath) {
+        Histogram frequencies = new Histogram(numberOfBytes);
 
-        try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(filePath))) {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                for (int i = 0; i < bytesRead; i += numberOfBytes) {
-                    byte[] currentSymbolBytes = new byte[numberOfBytes];
-                    for (int j = 0; j < numberOfBytes && i + j < bytesRead; j++) {
-                        currentSymbolBytes[j] = buffer[i + j];
-                    }
-                    Symbol currentSymbol = new Symbol(currentSymbolBytes);
-                    frequencies.put(currentSymbol, frequencies.getOrDefault(currentSymbol, 0) + 1);
-                }
-            }
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.HISTOGRAM)) {
+            readWindows(filePath, (window, length) -> frequencies.add(window, 0, length));
         } catch (IOException e) {
             e.printStackTrace(); // Handle or log the exception appropriately
         }
@@ -213,49 +1558,31 @@ public class FileHandler {
         return frequencies;
     }
 
-    private HuffmanNode buildHuffmanTree(Map<Symbol, Integer> frequencies) {
-        PriorityQueue<HuffmanNode> Q = new PriorityQueue<>();
-        frequencies.forEach((symbol, frequency) -> Q.add(new HuffmanNode(symbol, frequency)));
-
-        while (Q.size() > 1) {
-            HuffmanNode left = Q.poll();
-            HuffmanNode right = Q.poll();
-            HuffmanNode parent = new HuffmanNode(null, left.frequency + right.frequency);
-            parent.setLeft(left);
-            parent.setRight(right);
-            Q.add(parent);
+    // code lengths only, from the sorted counts in linear time (see HuffmanTable.codeLengths), in canonical order
+    HuffmanTable buildHuffmanTree(Histogram frequencies) {
+        HuffmanTable table;
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.TREE)) {
+            table = HuffmanTable.build(frequencies, maxCodeLength);
         }
-
-        return Q.poll();
+        METRICS.codeTable(table);
+        return table;
     }
 
-    private void buildHuffmanCodeTable(HuffmanNode root, Map<Symbol, MyBitSet> huffmanCodeTable, MyBitSet code) {
-        if (root.left == null && root.right == null) {
-            huffmanCodeTable.put(root.symbol, code);
-            return;
-        }
-
-        if (root.left != null) {
-            MyBitSet leftCode = new MyBitSet(code);
-            leftCode.addZero();
-            buildHuffmanCodeTable(root.left, huffmanCodeTable, leftCode);
-        }
-
-        if (root.right != null) {
-            MyBitSet rightCode = new MyBitSet(code);
-            rightCode.addOne();
-            buildHuffmanCodeTable(root.right, huffmanCodeTable, rightCode);
+    // code and length of every symbol for the encoder
+    EncodeTable buildHuffmanCodeTable(HuffmanTable table) {
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.TABLE)) {
+            return table.encodeTable();
         }
     }
 
-    private double calculateCompressedFileSize(Map<Symbol, Integer> frequencies, Map<Symbol, MyBitSet> huffmanCodeTable) {
+    private double calculateCompressedFileSize(Histogram frequencies, EncodeTable huffmanCodeTable) {
         double compressedFileSize = 0;
+        long[] keys = new long[frequencies.size()];
+        long[] counts = new long[keys.length];
+        int size = frequencies.copyTo(keys, counts);
         // Calculate the size of the compressed file
-        for (Map.Entry<Symbol, Integer> entry : frequencies.entrySet()) {
-            Symbol symbol = entry.getKey();
-            int frequency = entry.getValue();
-            MyBitSet huffmanCode = huffmanCodeTable.get(symbol);
-            compressedFileSize += frequency * huffmanCode.length();
+        for (int i = 0; i < size; i++) {
+            compressedFileSize += (double) counts[i] * huffmanCodeTable.length(keys[i]);
         }
 
         // Convert the size from bits to bytes
@@ -264,135 +1591,185 @@ public class FileHandler {
         return compressedFileSize;
     }
 
-    private void writeCompressedFile(String filePath, String newFilePath, Map<Symbol, MyBitSet> huffmanCodeTable) {
-        try (BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(newFilePath))) {
-            // Write the number of symbols
-            int size = huffmanCodeTable.size();
+    private void writeCompressedFile(String filePath, String newFilePath, HuffmanTable table,
+                                     EncodeTable huffmanCodeTable, long originalFileSize, boolean canonical) {
+        try (FileOutputStream fileOutputStream = new FileOutputStream(newFilePath);
+             OutputStream outputStream = outputStream(fileOutputStream)) {
+            boolean indexed = syncInterval > 0;
+            outputStream.write(indexed ? INDEXED : canonical ? CANONICAL_TABLE : EXPLICIT_TABLE);
 
-            // Write the size using four bytes in big-endian order
-            outputStream.write((size >> 24) & 0xFF);
-            outputStream.write((size >> 16) & 0xFF);
-            outputStream.write((size >> 8) & 0xFF);
-            outputStream.write(size & 0xFF);
+            // Write the original file size so the decoder knows where the last symbol ends
+            writeLong(outputStream, originalFileSize);
 
-            // Write the Huffman code table
-            for (Map.Entry<Symbol, MyBitSet> entry : huffmanCodeTable.entrySet()) {
-                Symbol symbol = entry.getKey();
-                MyBitSet huffmanCode = entry.getValue();
+            if (canonical) {
+                table.write(outputStream);
+            } else {
+                writeHuffmanCodeTable(outputStream, table);
+            }
 
-                // Write the symbol
-                outputStream.write(symbol.value);
+            if (!indexed) {
+                writeCompressedData(filePath, outputStream, huffmanCodeTable, null);
+                return;
+            }
+            // the sync point offsets are only known after encoding, they are written over this space at the end
+            long[] syncOffsets = new long[syncPointCount(originalFileSize)];
+            long indexPosition = 1 + 8 + table.headerSize() + 4 + 4;
+            writeInt(outputStream, syncInterval);
+            writeInt(outputStream, syncOffsets.length);
+            outputStream.write(new byte[8 * syncOffsets.length]);
+
+            writeCompressedData(filePath, outputStream, huffmanCodeTable, syncOffsets);
+            outputStream.flush();
+            ByteBuffer index = ByteBuffer.allocate(8 * syncOffsets.length);
+            for (long syncOffset : syncOffsets) {
+                index.putLong(syncOffset);
+            }
+            index.flip();
+            writeFully(fileOutputStream.getChannel(), index, indexPosition);
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        }
+    }
+
+    private void writeHuffmanCodeTable(OutputStream outputStream, HuffmanTable table) throws IOException {
+        // Write the number of symbols
+        writeInt(outputStream, table.size());
 
-                // Write the length of Huffman code as a byte
-                int huffmanCodeLength = huffmanCode.length();
+        // Write the Huffman code table
+        byte[] symbol = new byte[numberOfBytes];
+        for (int i = 0; i < table.size(); i++) {
+            // Write the symbol
+            SymbolKey.unpack(table.keys[i], numberOfBytes, symbol, 0);
+            outputStream.write(symbol);
 
-                // Write the Huffman code length using four bytes in big-endian order
-                outputStream.write((huffmanCodeLength >> 24) & 0xFF);
-                outputStream.write((huffmanCodeLength >> 16) & 0xFF);
-                outputStream.write((huffmanCodeLength >> 8) & 0xFF);
-                outputStream.write(huffmanCodeLength & 0xFF);
+            // Write the Huffman code length using four bytes in big-endian order
+            writeInt(outputStream, table.lengths[i]);
 
-                // Write the Huffman code
-                outputStream.write(huffmanCode.toByteArray());
+            // Write the Huffman code, first bit in bit 0 of the first byte
+            for (int shift = 0; shift < table.lengths[i]; shift += 8) {
+                outputStream.write((int) (table.codes[i] >>> shift));
             }
+        }
+    }
 
-            // Write the compressed file
-            try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(filePath))) {
-                byte[] buffer = new byte[BUFFER_SIZE];
-                int bytesRead;
+    private void writeInt(OutputStream outputStream, int value) throws IOException {
+        outputStream.write((value >> 24) & 0xFF);
+        outputStream.write((value >> 16) & 0xFF);
+        outputStream.write((value >> 8) & 0xFF);
+        outputStream.write(value & 0xFF);
+    }
 
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    StringBuilder bitStringBuilder = new StringBuilder();
-                    for (int i = 0; i < bytesRead; i += numberOfBytes) {
-                        byte[] currentSymbolBytes = new byte[numberOfBytes];
-                        for (int j = 0; j < numberOfBytes && i + j < bytesRead; j++) {
-                            currentSymbolBytes[j] = buffer[i + j];
-                        }
-                        Symbol currentSymbol = new Symbol(currentSymbolBytes);
-                        MyBitSet huffmanCode = huffmanCodeTable.get(currentSymbol);
-                        // add huffmanCode to bit by bit to the bitStringBuilder
-                        for (int j = 0; j < huffmanCode.length(); j++) {
-                            bitStringBuilder.append(huffmanCode.get(j) ? '1' : '0');
-                        }
-                    }
-                    int bitStringLength = bitStringBuilder.length();
-                    int bitStringIndex = 0;
-                    int byteLength = (int) Math.ceil(bitStringLength / 8.0);
-                    byte[] bitStringBytes = new byte[byteLength];
-
-                    for (int i = 0; i < byteLength; i++) {
-                        byte currentByte = 0;
-
-                        // Set every bit in the byte using bit operations
-                        for (int j = 0; j < 8; j++) {
-                            if (bitStringIndex < bitStringLength && bitStringBuilder.charAt(bitStringIndex) == '1') {
-                                currentByte |= (byte) (1 << j);
-                            }
-                            bitStringIndex++;
-                        }
+    private int syncPointCount(long originalFileSize) {
+        long symbolCount = (originalFileSize + numberOfBytes - 1) / numberOfBytes;
+        return (int) ((symbolCount + syncInterval - 1) / syncInterval);
+    }
 
-                        bitStringBytes[i] = currentByte;
-                    }
+    // syncOffsets, if not null, receives the bit offset of every syncInterval-th symbol in the payload
+    private void writeCompressedData(String filePath, OutputStream outputStream, EncodeTable encodeTable,
+                                     long[] syncOffsets) throws IOException {
+        BitWriter bitWriter = new BitWriter(outputStream);
+        try (CodecMetrics.Timer timer = METRICS.time(CodecMetrics.Phase.ENCODE)) {
+            writeCompressedData(filePath, bitWriter, encodeTable, syncOffsets);
+        }
+        long originalFileSize = new File(filePath).length();
+        METRICS.encoded((originalFileSize + numberOfBytes - 1) / numberOfBytes, bitWriter.bitsWritten());
+    }
 
-                    outputStream.write(bitStringBytes);
+    private void writeCompressedData(String filePath, BitWriter bitWriter, EncodeTable encodeTable,
+                                     long[] syncOffsets) throws IOException {
+        // Write the compressed file as one bit stream
+        if (syncOffsets == null) {
+            readWindows(filePath, (window, length) -> encodeTable.encode(window, 0, length, bitWriter));
+        } else {
+            // windows and sync points both start on a symbol, so every sync point is found inside a window
+            long syncBytes = (long) syncInterval * numberOfBytes;
+            long[] windowStart = {0};
+            readWindows(filePath, (window, length) -> {
+                for (int offset = 0; offset < length; ) {
+                    long position = windowStart[0] + offset;
+                    if (position % syncBytes == 0) {
+                        syncOffsets[(int) (position / syncBytes)] = bitWriter.bitsWritten();
+                    }
+                    int end = (int) Math.min(length, offset + syncBytes - position % syncBytes);
+                    encodeTable.encode(window, offset, end, bitWriter);
+                    offset = end;
+                }
+                windowStart[0] += length;
+            });
+        }
+        bitWriter.flush();
+    }
 
+    // memory maps the file one window at a time, windows hold whole symbols so none is split between them
+    private void readWindows(String filePath, WindowConsumer consumer) throws IOException {
+        readWindows(filePath, numberOfBytes, consumer);
+    }
 
-                }
-            } catch (IOException e) {
-                e.printStackTrace(); // Handle or log the exception appropriately
+    // windows are a multiple of alignment bytes long, the next ones are read ahead while the consumer runs
+    private void readWindows(String filePath, int alignment, WindowConsumer consumer) throws IOException {
+        try (FileChannel input = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+             ReadAhead windows = new ReadAhead(input, 0, input.size(),
+                     Math.max(alignment, windowSize - windowSize % alignment), ioBuffers)) {
+            for (ByteBuffer window = windows.next(); window != null; window = windows.next()) {
+                consumer.accept(window, window.limit());
             }
-        } catch (IOException e) {
-            e.printStackTrace(); // Handle or log the exception appropriately
         }
     }
 
-    private String createFilePath(String filePath) {
+    // the output file, written behind the caller by an I/O thread unless there is only one buffer
+    private OutputStream outputStream(FileOutputStream file) {
+        return ioBuffers > 1 ? new WriteBehindOutputStream(file, ioBuffers, writeBufferSize)
+                : new BufferedOutputStream(file);
+    }
+
+    WindowSource windows(String filePath) {
+        return consumer -> readWindows(filePath, consumer);
+    }
+
+    static WindowSource windows(byte[] data) {
+        return consumer -> consumer.accept(ByteBuffer.wrap(data), data.length);
+    }
+
+    interface WindowConsumer {
+        void accept(ByteBuffer window, int length) throws IOException;
+    }
+
+    // the data to compress, read one window at a time, possibly more than once
+    interface WindowSource {
+        void read(WindowConsumer consumer) throws IOException;
+    }
+
+    String createFilePath(String filePath) {
         // Extract the file name with extension from the input file path
-        String fileNameWithExtension = filePath.substring(filePath.lastIndexOf('\\') + 1);
+        String fileNameWithExtension = filePath.substring(fileNameStart(filePath));
         String newFileName = "20010888." + numberOfBytes + "." + fileNameWithExtension + ".hc";
         // create newFilePath
-        return filePath.substring(0, filePath.lastIndexOf('\\') + 1) + newFileName;
+        return filePath.substring(0, fileNameStart(filePath)) + newFileName;
+    }
+
+    // index of the file name in the path, either separator is accepted
+    private static int fileNameStart(String filePath) {
+        return Math.max(filePath.lastIndexOf('\\'), filePath.lastIndexOf('/')) + 1;
+    }
+
+    // the number of bytes per symbol is only stored in the name of a compressed file
+    static int numberOfBytes(String filePath) {
+        String[] fileNameParts = filePath.substring(fileNameStart(filePath)).split("\\.");
+        return Integer.parseInt(fileNameParts[1]);
     }
+
     private String extractFilepath(String filePath) {
-        String fileNameWithExtension = filePath.substring(filePath.lastIndexOf('\\') + 1);
+        String fileNameWithExtension = filePath.substring(fileNameStart(filePath));
         //extract the original file name with extension and n
         //file name format: 20010888.<n>.<original_file_name>.extension.hc
-        String[] fileNameParts = fileNameWithExtension.split("\\.");
         String newFileName = "extracted." + fileNameWithExtension.substring(0, fileNameWithExtension.length()-3);
-        numberOfBytes = Integer.parseInt(fileNameParts[1]);
-        String newFilePath = filePath.substring(0,filePath.lastIndexOf('\\') + 1) + newFileName;
+        numberOfBytes = numberOfBytes(filePath);
+        String newFilePath = filePath.substring(0,fileNameStart(filePath)) + newFileName;
         return newFilePath;
     }
 
 
 
-    private static class HuffmanNode implements Comparable<HuffmanNode> {
-        Symbol symbol;
-        int frequency;
-        HuffmanNode left;
-        HuffmanNode right;
-
-        public HuffmanNode(Symbol symbol, int frequency) {
-            this.symbol = symbol;
-            this.frequency = frequency;
-            this.left = null;
-            this.right = null;
-        }
-
-        public void setLeft(HuffmanNode left) {
-            this.left = left;
-        }
-
-        public void setRight(HuffmanNode right) {
-            this.right = right;
-        }
-
-        @Override
-        public int compareTo(HuffmanNode other) {
-            return Integer.compare(this.frequency, other.frequency);
-        }
-    }
-
     private static class Symbol implements Comparable<Symbol> {
         byte[] value;
 
@@ -468,152 +1845,17 @@ public class FileHandler {
         }
 
 
-        // toByteArray similar to BitSet
-        public byte[] toByteArray() {
-            byte[] bytes = new byte[(int) Math.ceil(length / 8.0)];
-            for (int i = 0; i < length; i++) {
-                if (get(i)) {
-                    bytes[i / 8] |= (byte) (1 << (i % 8));
-                }
-            }
-            return bytes;
-        }
-
         public long toLong() {
             return set;
         }
     }
-    private static class MyBitSetList {
-        List<Long> set;
-        int j;
-
-        public MyBitSetList() {
-            this.set = new ArrayList<>();
-            this.set.add(0L);
-            this.j = 0;
-        }
-        public void add(byte b) {
-            int i = 0;
-            while (j < set.size() * 64  && i < 8) {
-                int index = j%64;
-                Long temp = set.get(set.size() - 1);
-                long bit = (b & (1 << i)) != 0 ? 1L : 0L;
-                temp |= (bit << index);
-                set.set(set.size() - 1, temp);
-                j++;
-                i++;
-            }
-            if (i < 8) {
-                this.set.add(0L);
-                while (j < set.size() * 64  && i < 8) {
-                    int index = j%64;
-                    Long temp = set.get(set.size() - 1);
-                    long bit = (b & (1 << i)) != 0 ? 1L : 0L;
-                    temp |= (bit << index);
-                    set.set(set.size() - 1, temp);
-                    j++;
-                    i++;
-                }
-            }
-        }
+    private static class CompressedBlock {
+        byte[] data;
+        long bitLength;
 
-        public void add(MyBitSet other) {
-            int i = 0;
-            while (j < set.size() * 64  && i < other.length()) {
-                int index = j%64;
-                Long temp = set.get(set.size() - 1);
-                long bit = other.get(i) ? 1L : 0L;
-                temp |= (bit << index);
-                set.set(set.size() - 1, temp);
-                j++;
-                i++;
-            }
-            if (i < other.length()) {
-                this.set.add(0L);
-                while (j < set.size() * 64  && i < other.length()) {
-                    int index = j%64;
-                    Long temp = set.get(set.size() - 1);
-                    long bit = other.get(i) ? 1L : 0L;
-                    temp |= (bit << index);
-                    set.set(set.size() - 1, temp);
-                    j++;
-                    i++;
-                }
-            }
-        }
-
-        // toByteArray similar to BitSet
-        public byte[] toByteArray() {
-            int size = this.set.size() * 8; // Each Long has 8 bytes
-            byte[] bytes = new byte[size];
-
-            int byteIndex = 0;
-            for (Long currentLong : this.set) {
-                byte[] currentLongBytes = LongToByteArray(currentLong);
-                for (byte currentLongByte : currentLongBytes) {
-                    bytes[byteIndex++] = currentLongByte;
-                }
-            }
-
-            return bytes;
-        }
-
-        private byte[] LongToByteArray(long value) {
-            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
-            buffer.putLong(value);
-            return buffer.array();
-        }
-
-        public boolean isEmpty() {
-            return set.size() == 1 && set.get(0) == 0;
-        }
-
-        public int length() {
-            return j;
-        }
-
-        public boolean get(int i) {
-            int index = i/64;
-            int bitIndex = i%64;
-            return (set.get(index) & (1L << bitIndex)) != 0;
-        }
-
-        public void clear(int i, int i1) {
-            int index = i/64;
-            int bitIndex = i%64;
-            int index1 = i1/64;
-            int bitIndex1 = i1%64;
-            if (index == index1) {
-                long temp = set.get(index);
-                long mask = (1L << (bitIndex1 - bitIndex)) - 1;
-                mask = ~mask;
-                temp &= mask;
-                if (temp == 0)
-                    set.remove(index);
-                else
-                    set.set(index, temp);
-            }
-            else {
-                long temp = set.get(index);
-                long mask = (1L << (64 - bitIndex)) - 1;
-                mask = ~mask;
-                temp &= mask;
-                if (temp == 0)
-                    set.remove(index);
-                else
-                    set.set(index, temp);
-                for (int k = index + 1; k < index1; k++) {
-                    set.remove(k);
-                }
-                temp = set.get(index1);
-                mask = (1L << bitIndex1) - 1;
-                mask = ~mask;
-                temp &= mask;
-                if (temp == 0)
-                    set.remove(index1);
-                else
-                    set.set(index1, temp);
-            }
+        public CompressedBlock(byte[] data, long bitLength) {
+            this.data = data;
+            this.bitLength = bitLength;
         }
     }
     private static class DecompressedNode implements Comparable<DecompressedNode> {
@@ -0,0 +1,220 @@
+package Huffman_Algorithm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Symbol frequencies without boxing or a Symbol per input symbol.
+ * 1 and 2 byte symbols are counted in a plain long[256] / long[65536] indexed by the symbol value,
+ * wider symbols are packed into a long key (see SymbolKey) and counted in a LongHashMap.
+ * <p>
+ * Large inputs of 1 and 2 byte symbols are counted into interleaved int sub-histograms (lanes) that are added up at
+ * the end, so a run of one symbol does not make every count wait for the previous one, and a word or vector that
+ * holds only one symbol is counted at once. That keeps the throughput about the same on skewed, text and random
+ * data. The lanes use the Vector API kernels of VectorHistogram when the JVM runs with
+ * --add-modules jdk.incubator.vector, and 8 byte words otherwise.
+ */
+class Histogram {
+    private static final int DIRECT_MAX_BYTES = 2;
+    // -Dhuffman.scalarHistogram=true uses the scalar lanes even when the Vector API is there
+    static final boolean VECTOR = !Boolean.getBoolean("huffman.scalarHistogram")
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    private static final int BYTE_LANES = 8;
+    private static final int PAIR_LANES = 4;
+    // lanes are only used for inputs of at least this many bytes per lane counter, so adding them up stays cheap
+    private static final int LANE_MIN_INPUT = 4;
+
+    private final int numberOfBytes;
+    private final long[] direct;
+    private final LongHashMap counts;
+    // allocated on the first large input and cleared after every add
+    private int[] lanes;
+
+    Histogram(int numberOfBytes) {
+        this.numberOfBytes = numberOfBytes;
+        if (numberOfBytes <= DIRECT_MAX_BYTES) {
+            this.direct = new long[1 << (8 * numberOfBytes)];
+            this.counts = null;
+        } else {
+            this.direct = null;
+            this.counts = new LongHashMap(1024);
+        }
+    }
+
+    int numberOfBytes() {
+        return numberOfBytes;
+    }
+
+    /**
+     * Counts the symbols in bytes [offset, limit). The input must hold whole symbols except at the end of the file,
+     * where the last symbol is padded with zero bytes.
+     */
+    void add(byte[] input, int offset, int limit) {
+        add(ByteBuffer.wrap(input), offset, limit);
+    }
+
+    /**
+     * Same as add(byte[], int, int) for a heap, direct or memory mapped buffer, using absolute positions.
+     */
+    void add(ByteBuffer input, int offset, int limit) {
+        if (direct != null && limit - offset >= LANE_MIN_INPUT * (long) laneCounters()) {
+            offset = addLanes(input, offset, limit);
+        }
+        if (numberOfBytes == 1) {
+            for (int i = offset; i < limit; i++) {
+                direct[input.get(i) & 0xFF]++;
+            }
+        } else if (direct != null) {
+            int i = offset;
+            for (; i + 1 < limit; i += 2) {
+                direct[((input.get(i) & 0xFF) << 8) | (input.get(i + 1) & 0xFF)]++;
+            }
+            if (i < limit) {
+                direct[(input.get(i) & 0xFF) << 8]++;
+            }
+        } else {
+            for (int i = offset; i < limit; i += numberOfBytes) {
+                counts.addTo(SymbolKey.pack(input, i, numberOfBytes, limit), 1);
+            }
+        }
+    }
+
+    private int laneCounters() {
+        return numberOfBytes == 1 ? BYTE_LANES * 256 : PAIR_LANES * 65536;
+    }
+
+    // counts whole words of [offset, limit) through the lanes and returns where it stopped, less than a word or
+    // vector before limit
+    private int addLanes(ByteBuffer input, int offset, int limit) {
+        if (lanes == null) {
+            lanes = new int[laneCounters()];
+        }
+        int i;
+        if (numberOfBytes == 1) {
+            i = VECTOR ? VectorHistogram.addBytes(input, offset, limit, direct, lanes) : offset;
+            i = addBytes(input, i, limit);
+        } else {
+            i = VECTOR ? VectorHistogram.addPairs(input, offset, limit, direct, lanes) : offset;
+            i = addPairs(input, i, limit);
+        }
+        // a lane counts at most limit / 2 symbols, so an int does not overflow
+        int laneLength = lanes.length / (numberOfBytes == 1 ? BYTE_LANES : PAIR_LANES);
+        for (int lane = 0; lane < lanes.length; lane += laneLength) {
+            for (int symbol = 0; symbol < laneLength; symbol++) {
+                direct[symbol] += lanes[lane + symbol];
+            }
+        }
+        Arrays.fill(lanes, 0);
+        return i;
+    }
+
+    // 8 bytes at a time, one lane per byte of the word
+    private int addBytes(ByteBuffer input, int offset, int limit) {
+        int[] lanes = this.lanes;
+        int i = offset;
+        for (; i + 8 <= limit; i += 8) {
+            long word = input.getLong(i);
+            if (word == (word >>> 56) * 0x0101010101010101L) {
+                direct[(int) (word >>> 56)] += 8;
+                continue;
+            }
+            lanes[(int) (word >>> 56)]++;
+            lanes[256 + (int) ((word >>> 48) & 0xFF)]++;
+            lanes[512 + (int) ((word >>> 40) & 0xFF)]++;
+            lanes[768 + (int) ((word >>> 32) & 0xFF)]++;
+            lanes[1024 + (int) ((word >>> 24) & 0xFF)]++;
+            lanes[1280 + (int) ((word >>> 16) & 0xFF)]++;
+            lanes[1536 + (int) ((word >>> 8) & 0xFF)]++;
+            lanes[1792 + (int) (word & 0xFF)]++;
+        }
+        return i;
+    }
+
+    // 4 symbols of 2 bytes at a time, one lane per symbol of the word
+    private int addPairs(ByteBuffer input, int offset, int limit) {
+        int[] lanes = this.lanes;
+        boolean bigEndian = input.order() == ByteOrder.BIG_ENDIAN;
+        int i = offset;
+        for (; i + 8 <= limit; i += 8) {
+            long word = bigEndian ? input.getLong(i) : Long.reverseBytes(input.getLong(i));
+            if (word == (word >>> 48) * 0x0001000100010001L) {
+                direct[(int) (word >>> 48)] += 4;
+                continue;
+            }
+            lanes[(int) (word >>> 48)]++;
+            lanes[65536 + (int) ((word >>> 32) & 0xFFFF)]++;
+            lanes[131072 + (int) ((word >>> 16) & 0xFFFF)]++;
+            lanes[196608 + (int) (word & 0xFFFF)]++;
+        }
+        return i;
+    }
+
+    void clear() {
+        if (direct != null) {
+            Arrays.fill(direct, 0);
+        } else {
+            counts.clear();
+        }
+    }
+
+    void add(long key, long count) {
+        if (direct != null) {
+            direct[(int) key] += count;
+        } else {
+            counts.addTo(key, count);
+        }
+    }
+
+    /**
+     * Number of distinct symbols seen.
+     */
+    int size() {
+        if (direct == null) {
+            return counts.size();
+        }
+        int size = 0;
+        for (long count : direct) {
+            if (count != 0) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Shannon entropy of the counts in bytes plus the symbols of the code table, a lower bound of the Huffman coded
+     * size that needs no tree.
+     */
+    double codedSizeBound() {
+        long[] frequencies = new long[size()];
+        int size = copyTo(new long[frequencies.length], frequencies);
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += frequencies[i];
+        }
+        double bits = 0;
+        for (int i = 0; i < size; i++) {
+            bits += frequencies[i] * (Math.log((double) total / frequencies[i]) / Math.log(2));
+        }
+        return bits / 8 + (double) size * numberOfBytes;
+    }
+
+    /**
+     * Copies the symbols that were seen and their counts into arrays of at least size() elements.
+     * Returns the number of symbols copied.
+     */
+    int copyTo(long[] keys, long[] frequencies) {
+        if (direct == null) {
+            return counts.copyTo(keys, frequencies);
+        }
+        int i = 0;
+        for (int symbol = 0; symbol < direct.length; symbol++) {
+            if (direct[symbol] != 0) {
+                keys[i] = symbol;
+                frequencies[i++] = direct[symbol];
+            }
+        }
+        return i;
+    }
+}
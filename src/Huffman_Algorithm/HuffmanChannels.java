@@ -0,0 +1,35 @@
+package Huffman_Algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Channel versions of HuffmanOutputStream and HuffmanInputStream, for pipelines built on NIO channels.
+ */
+public final class HuffmanChannels {
+    private HuffmanChannels() {
+    }
+
+    /**
+     * Returns a channel that compresses everything written to it into the given channel.
+     * Closing the returned channel finishes the stream and closes the given channel.
+     */
+    public static WritableByteChannel newWritableChannel(WritableByteChannel channel, int numberOfBytes, int blockSize) {
+        return Channels.newChannel(new HuffmanOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel)), numberOfBytes, blockSize));
+    }
+
+    public static WritableByteChannel newWritableChannel(WritableByteChannel channel, int numberOfBytes) {
+        return newWritableChannel(channel, numberOfBytes, HuffmanOutputStream.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Returns a channel that decompresses what it reads from the given channel.
+     */
+    public static ReadableByteChannel newReadableChannel(ReadableByteChannel channel) {
+        return Channels.newChannel(new HuffmanInputStream(new BufferedInputStream(Channels.newInputStream(channel))));
+    }
+}
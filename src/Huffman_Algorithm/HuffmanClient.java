@@ -0,0 +1,209 @@
+package Huffman_Algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Runs command lines on a HuffmanServer. One client is one connection and sends its requests one at a time; open
+ * one client per thread to run commands in parallel. Only uses JDK classes, so the command line client starts fast.
+ * <p>
+ * Protocol, in DataOutputStream encoding: a request is the number of arguments, every argument (writeUTF), and the
+ * length of the payload followed by its bytes, or NO_PAYLOAD. The response is the status, the length and bytes of
+ * what the command printed, and the length and bytes of the result, or NO_PAYLOAD. A request has at most
+ * MAX_ARGUMENTS arguments and MAX_PAYLOAD bytes of payload, the server closes the connection on a larger one. A request with a payload has "-"
+ * in place of the file: "-c - n" compresses the payload into a HuffmanOutputStream stream, "-d -" decompresses one.
+ * <p>
+ * On a TCP port, which any local user can connect to, a connection starts with the TOKEN_LENGTH bytes of the token
+ * the server wrote to tokenPath(port), a file only its owner can read.
+ */
+public final class HuffmanClient implements Closeable {
+    public static final int OK = 0;
+    // the arguments were not valid, the output is the usage
+    public static final int USAGE = 1;
+    // the command threw, the output ends with the stack trace
+    public static final int FAILED = 2;
+    static final int NO_PAYLOAD = -1;
+    static final int MAX_ARGUMENTS = 1024;
+    // inline data is held in memory by the server, larger files are better passed by path
+    static final int MAX_PAYLOAD = 256 * 1024 * 1024;
+    // the only argument of the request that stops the daemon
+    static final String STOP = "-stop";
+    static final SocketAddress DEFAULT_ADDRESS = UnixDomainSocketAddress.of(
+            Paths.get(System.getProperty("java.io.tmpdir"), "huffman-" + System.getProperty("user.name") + ".sock"));
+    static final int TOKEN_LENGTH = 32;
+
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public HuffmanClient(SocketAddress address) throws IOException {
+        if (address instanceof UnixDomainSocketAddress) {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            channel = SocketChannel.open();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        if (address instanceof InetSocketAddress) {
+            byte[] token;
+            try {
+                token = Files.readAllBytes(tokenPath(((InetSocketAddress) address).getPort()));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            // sent with the first request
+            out.write(token);
+        }
+    }
+
+    /**
+     * The file with the token of a server listening on the port.
+     */
+    static Path tokenPath(int port) {
+        return Paths.get(System.getProperty("java.io.tmpdir"),
+                "huffman-" + System.getProperty("user.name") + "-" + port + ".token");
+    }
+
+    /**
+     * The address of -socket path or -port port, the port is on the loopback address.
+     */
+    static SocketAddress address(String option, String value) {
+        if (option.equals("-socket")) {
+            return UnixDomainSocketAddress.of(value);
+        }
+        if (option.equals("-port")) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(value));
+        }
+        throw new IllegalArgumentException("Unknown option " + option);
+    }
+
+    /**
+     * Runs the command line (the arguments of main) on the server. Paths are resolved by the server, so they should
+     * be absolute. payload is the data of an inline "-c - n" or "-d -" command, null for the others.
+     */
+    public Response run(String[] args, byte[] payload) throws IOException {
+        if (args.length > MAX_ARGUMENTS) {
+            throw new IllegalArgumentException("More than " + MAX_ARGUMENTS + " arguments");
+        }
+        if (payload != null && payload.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Inline data is limited to " + MAX_PAYLOAD / 1024 / 1024
+                    + " MB, pass the path of the file instead");
+        }
+        out.writeInt(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.writeInt(payload == null ? NO_PAYLOAD : payload.length);
+        if (payload != null) {
+            out.write(payload);
+        }
+        out.flush();
+        int status = in.readInt();
+        byte[] output = new byte[in.readInt()];
+        in.readFully(output);
+        int resultLength = in.readInt();
+        byte[] result = null;
+        if (resultLength != NO_PAYLOAD) {
+            result = new byte[resultLength];
+            in.readFully(result);
+        }
+        return new Response(status, new String(output), result);
+    }
+
+    /**
+     * Asks the server to stop once the commands it is running are done.
+     */
+    public void stop() throws IOException {
+        run(new String[]{STOP}, null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Usage: [-socket path | -port port] followed by the arguments of main, or -stop. With "-" as the file the data
+     * is read from standard input and the result written to standard output.
+     */
+    public static void main(String[] args) throws IOException {
+        SocketAddress address = DEFAULT_ADDRESS;
+        if (args.length >= 2 && (args[0].equals("-socket") || args[0].equals("-port"))) {
+            address = address(args[0], args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        boolean inline = args.length >= 2 && args[1].equals("-");
+        Response response;
+        try (HuffmanClient client = new HuffmanClient(address)) {
+            response = client.run(absolutePaths(args), inline ? System.in.readAllBytes() : null);
+        } catch (IOException e) {
+            System.err.println("No Huffman daemon at " + address + ", start one with: java -jar huffman.jar -server");
+            System.exit(FAILED);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(USAGE);
+            return;
+        }
+        // with inline data standard output is the result, so the messages go to standard error
+        (inline ? System.err : System.out).print(response.output);
+        if (response.result != null) {
+            System.out.write(response.result);
+            System.out.flush();
+        }
+        System.exit(response.status);
+    }
+
+    // the server has a working directory of its own, so the paths of the command line are made absolute here
+    private static String[] absolutePaths(String[] args) {
+        String[] absolute = args.clone();
+        for (int i = 1; i < args.length; i++) {
+            boolean path = i == 1 && !args[i].equals("-")
+                    || args[0].equals("-t") && i >= 3
+                    || args[i - 1].equals("-dict") || args[i - 1].equals("-dictdir");
+            if (path) {
+                absolute[i] = Paths.get(args[i]).toAbsolutePath().toString();
+            }
+        }
+        return absolute;
+    }
+
+    /**
+     * What a command printed and its status, with the result of an inline command.
+     */
+    public static final class Response {
+        public final int status;
+        public final String output;
+        public final byte[] result;
+
+        Response(int status, String output, byte[] result) {
+            this.status = status;
+            this.output = output;
+            this.result = result;
+        }
+    }
+}
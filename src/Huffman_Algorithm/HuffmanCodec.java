@@ -0,0 +1,211 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable compression settings that any number of threads can use at once. Every call runs in a context of its
+ * own (a FileHandler configured from the codec) that holds the number of bytes per symbol and the other per call
+ * state, so concurrent calls do not see each other. What can be shared is: the dictionary and its code tables,
+ * which are read only once built, the dictionaries loaded for decompression, and a pool of the buffers that
+ * blocks and segments are decoded in.
+ * <pre>
+ * HuffmanCodec codec = HuffmanCodec.builder().maxCodeLength(20).syncInterval(65536).build();
+ * executor.submit(() -> codec.compress("a.log", 1));
+ * executor.submit(() -> codec.decompress("20010888.2.b.log.hc"));
+ * </pre>
+ */
+public final class HuffmanCodec {
+    private final int windowSize;
+    private final int ioBuffers;
+    private final int writeBufferSize;
+    private final int maxCodeLength;
+    private final int syncInterval;
+    private final boolean interleaved;
+    private final boolean transform;
+    private final int sampleSize;
+    private final HuffmanDictionary dictionary;
+    private final String dictionaryDirectory;
+    private final Map<Path, DictionaryCache> dictionaries = new ConcurrentHashMap<>();
+    private final BufferPool buffers;
+
+    private HuffmanCodec(Builder builder) {
+        this.windowSize = builder.windowSize;
+        this.ioBuffers = builder.ioBuffers;
+        this.writeBufferSize = builder.writeBufferSize;
+        this.maxCodeLength = builder.maxCodeLength;
+        this.syncInterval = builder.syncInterval;
+        this.interleaved = builder.interleaved;
+        this.transform = builder.transform;
+        this.sampleSize = builder.sampleSize;
+        this.dictionary = builder.dictionary;
+        this.dictionaryDirectory = builder.dictionaryDirectory;
+        this.buffers = new BufferPool(builder.bufferPoolBytes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void compress(String filePath, int n) {
+        newContext().compress(filePath, n);
+    }
+
+    /**
+     * @see FileHandler#compress(String, int, boolean)
+     */
+    public void compress(String filePath, int n, boolean canonical) {
+        newContext().compress(filePath, n, canonical);
+    }
+
+    /**
+     * Compresses the file with the number of bytes per symbol that gives the smallest file, returns it.
+     */
+    public int compressAuto(String filePath, boolean canonical) {
+        return newContext().compressAuto(filePath, canonical);
+    }
+
+    public void compressBlocks(String filePath, int n, int blockSize) {
+        newContext().compressBlocks(filePath, n, blockSize);
+    }
+
+    public void compressAdaptive(String filePath, int n, int rebuildInterval) {
+        newContext().compressAdaptive(filePath, n, rebuildInterval);
+    }
+
+    /**
+     * @see FileHandler#compressBatch(String, int, boolean, boolean, int)
+     */
+    public void compressBatch(String path, int n, boolean list, boolean archive, int threads) {
+        newContext().compressBatch(path, n, list, archive, threads);
+    }
+
+    public void decompress(String filePath) {
+        newContext().decompress(filePath);
+    }
+
+    /**
+     * Opens a compressed file for reads at any offset, dictionaries are found in the codec's dictionary directory
+     * and shared with its decompress calls.
+     */
+    public HuffmanFileReader openReader(String filePath) throws IOException {
+        return new HuffmanFileReader(filePath, dictionaries,
+                dictionaryDirectory != null ? Paths.get(dictionaryDirectory) : null);
+    }
+
+    // a fresh FileHandler for one call, sharing the dictionaries and buffers of the codec
+    private FileHandler newContext() {
+        FileHandler context = new FileHandler(dictionaries, buffers);
+        context.setWindowSize(windowSize);
+        context.setIoBuffers(ioBuffers);
+        context.setWriteBufferSize(writeBufferSize);
+        context.setMaxCodeLength(maxCodeLength);
+        context.setSyncInterval(syncInterval);
+        context.setInterleaved(interleaved);
+        context.setTransform(transform);
+        context.setSampleSize(sampleSize);
+        context.setDictionary(dictionary);
+        if (dictionaryDirectory != null) {
+            context.setDictionaryDirectory(dictionaryDirectory);
+        }
+        return context;
+    }
+
+    /**
+     * Settings of a HuffmanCodec, with the same defaults and meaning as the FileHandler setters.
+     */
+    public static final class Builder {
+        private int windowSize = FileHandler.DEFAULT_WINDOW_SIZE;
+        private int ioBuffers = FileHandler.DEFAULT_IO_BUFFERS;
+        private int writeBufferSize = FileHandler.DEFAULT_WRITE_BUFFER_SIZE;
+        private int maxCodeLength = HuffmanTable.DEFAULT_MAX_CODE_LENGTH;
+        private int syncInterval;
+        private boolean interleaved;
+        private boolean transform;
+        private int sampleSize;
+        private HuffmanDictionary dictionary;
+        private String dictionaryDirectory;
+        private long bufferPoolBytes = BufferPool.DEFAULT_MAX_BYTES;
+
+        private Builder() {
+        }
+
+        public Builder windowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        public Builder ioBuffers(int ioBuffers) {
+            this.ioBuffers = ioBuffers;
+            return this;
+        }
+
+        public Builder writeBufferSize(int writeBufferSize) {
+            this.writeBufferSize = writeBufferSize;
+            return this;
+        }
+
+        public Builder maxCodeLength(int maxCodeLength) {
+            this.maxCodeLength = maxCodeLength;
+            return this;
+        }
+
+        public Builder syncInterval(int syncInterval) {
+            this.syncInterval = syncInterval;
+            return this;
+        }
+
+        public Builder interleaved(boolean interleaved) {
+            this.interleaved = interleaved;
+            return this;
+        }
+
+        public Builder transform(boolean transform) {
+            this.transform = transform;
+            return this;
+        }
+
+        public Builder sampleSize(int sampleSize) {
+            this.sampleSize = sampleSize;
+            return this;
+        }
+
+        /**
+         * The dictionary is loaded here, once for all the calls of the codec.
+         */
+        public Builder dictionary(String dictionaryPath) {
+            try {
+                this.dictionary = dictionaryPath == null ? null : HuffmanDictionary.load(Paths.get(dictionaryPath));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot read dictionary " + dictionaryPath, e);
+            }
+            return this;
+        }
+
+        public Builder dictionaryDirectory(String dictionaryDirectory) {
+            this.dictionaryDirectory = dictionaryDirectory;
+            return this;
+        }
+
+        /**
+         * Most bytes of decoding buffers kept for reuse between calls, 64 MB by default.
+         */
+        public Builder bufferPoolBytes(long bufferPoolBytes) {
+            if (bufferPoolBytes < 0) {
+                throw new IllegalArgumentException("Buffer pool size must not be negative");
+            }
+            this.bufferPoolBytes = bufferPoolBytes;
+            return this;
+        }
+
+        public HuffmanCodec build() {
+            HuffmanCodec codec = new HuffmanCodec(this);
+            // the FileHandler setters check the settings
+            codec.newContext();
+            return codec;
+        }
+    }
+}
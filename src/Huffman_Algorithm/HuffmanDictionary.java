@@ -0,0 +1,122 @@
+package Huffman_Algorithm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * A canonical code table trained on sample files and shared by many compressed files, which store only its ID
+ * instead of a table of their own.
+ * For 1 and 2 byte symbols every possible symbol gets a code, so any file can use the dictionary; wider symbols
+ * that were not in the samples cannot be coded and such files fall back to a table of their own.
+ * <p>
+ * File format: the number of bytes per symbol and the canonical table (see HuffmanTable). The ID is the CRC-32 of
+ * the file, so a file always holds the dictionary its name refers to, and the file is named after its ID in hex.
+ */
+class HuffmanDictionary {
+    static final String EXTENSION = ".hcd";
+    private static final int COMPLETE_MAX_BYTES = 2;
+
+    final int id;
+    final HuffmanTable table;
+    private EncodeTable encodeTable;
+    private TableDecoder decoder;
+
+    private HuffmanDictionary(int id, HuffmanTable table) {
+        this.id = id;
+        this.table = table;
+    }
+
+    /**
+     * Builds the code from the symbol counts of the samples. For 1 and 2 byte symbols the symbols that do not occur
+     * in the samples count once and the others count once per possible symbol, so together the unseen symbols
+     * weigh no more than one sample symbol.
+     */
+    static HuffmanDictionary train(Histogram samples, int maxCodeLength) throws IOException {
+        int numberOfBytes = samples.numberOfBytes();
+        if (numberOfBytes <= COMPLETE_MAX_BYTES) {
+            long[] keys = new long[samples.size()];
+            long[] counts = new long[keys.length];
+            samples.copyTo(keys, counts);
+            samples.clear();
+            int alphabetSize = 1 << (8 * numberOfBytes);
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                samples.add(symbol, 1);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                samples.add(keys[i], counts[i] * alphabetSize - 1);
+            }
+        }
+        HuffmanTable table = HuffmanTable.build(samples, maxCodeLength);
+        return new HuffmanDictionary(checksum(serialize(table)), table);
+    }
+
+    static String fileName(int id) {
+        return String.format("%08x", id) + EXTENSION;
+    }
+
+    int numberOfBytes() {
+        return table.numberOfBytes;
+    }
+
+    // built on first use, a dictionary is usually only used on one side
+    synchronized EncodeTable encodeTable() {
+        if (encodeTable == null) {
+            encodeTable = table.encodeTable();
+        }
+        return encodeTable;
+    }
+
+    synchronized TableDecoder decoder() {
+        if (decoder == null) {
+            decoder = table.decoder();
+        }
+        return decoder;
+    }
+
+    /**
+     * Writes the dictionary to directory/fileName(id) and returns the path.
+     */
+    Path save(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path path = directory.resolve(fileName(id));
+        Files.write(path, serialize(table));
+        return path;
+    }
+
+    static HuffmanDictionary load(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length == 0 || bytes[0] < 1 || bytes[0] > SymbolKey.MAX_BYTES) {
+            throw new IOException("Not a Huffman dictionary: " + path);
+        }
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes, 1, bytes.length - 1);
+        return new HuffmanDictionary(checksum(bytes), HuffmanTable.read(inputStream, bytes[0]));
+    }
+
+    /**
+     * Loads the dictionary with the given ID from directory/fileName(id).
+     */
+    static HuffmanDictionary load(Path directory, int id) throws IOException {
+        HuffmanDictionary dictionary = load(directory.resolve(fileName(id)));
+        if (dictionary.id != id) {
+            throw new IOException("Dictionary " + fileName(id) + " does not match its ID");
+        }
+        return dictionary;
+    }
+
+    private static byte[] serialize(HuffmanTable table) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1 + table.headerSize());
+        outputStream.write(table.numberOfBytes);
+        table.write(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,251 @@
+package Huffman_Algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads ranges of the original file out of a compressed file without decompressing it from the start.
+ * A file compressed with sync points (FileHandler.setSyncInterval) is decoded from the last sync point before the
+ * range, a file compressed in blocks from the start of the block that holds it (the whole block if it has
+ * transforms), so the cost of a read depends on the sync interval or block size and not on the offset. Stored files
+ * and blocks are read as they are.
+ * <p>
+ * Other files with one code table have no sync points, so every read decodes them from the first symbol up to the
+ * end of the range: reading near the end costs about as much as decompressing the whole file, every time. Compress
+ * files that are read at offsets with a sync interval or in blocks.
+ * <p>
+ * The header is read once when the reader is opened, read can be called from several threads at once. Dictionaries
+ * are loaded through a DictionaryCache, shared by all readers opened with the public constructors, or with the
+ * decompress calls of the HuffmanCodec that opened the reader.
+ */
+public class HuffmanFileReader implements Closeable {
+    // compressed ranges up to this size are read into the heap instead of being memory mapped
+    private static final int HEAP_READ_LIMIT = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int numberOfBytes;
+    private final long originalFileSize;
+    private final long symbolCount;
+    // one code table: the payload and the bit offset of every syncInterval-th symbol
+    private TableDecoder decoder;
+    private long payloadStart;
+    private long syncInterval;
+    private long[] syncOffsets;
+    // blocks: the offset of every block, and the end of the file last
+    private int blockSize;
+    private long[] blockOffsets;
+    private boolean[] storedBlocks;
+    // stored: where the original bytes start, or -1
+    private long storedStart = -1;
+    private boolean interleaved;
+    // blocks with transforms, which are decoded whole
+    private boolean transformed;
+
+    // the dictionaries of the readers that are not opened by a HuffmanCodec, one cache per directory
+    private static final Map<Path, DictionaryCache> DICTIONARIES = new ConcurrentHashMap<>();
+
+    public HuffmanFileReader(String filePath) throws IOException {
+        this(filePath, null);
+    }
+
+    /**
+     * @param dictionaryDirectory where the dictionary of a file compressed with one is found, by default the directory
+     *                            of the compressed file
+     */
+    public HuffmanFileReader(String filePath, String dictionaryDirectory) throws IOException {
+        this(filePath, DICTIONARIES, dictionaryDirectory != null ? Paths.get(dictionaryDirectory) : null);
+    }
+
+    HuffmanFileReader(String filePath, Map<Path, DictionaryCache> dictionaries, Path dictionaryDirectory)
+            throws IOException {
+        numberOfBytes = FileHandler.numberOfBytes(filePath);
+        channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            CountingInputStream counter = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataInputStream header = new DataInputStream(counter);
+            int format = header.read();
+            if (format == FileHandler.TRANSFORMED_BLOCKS) {
+                transformed = true;
+                format = header.read();
+                if (format != FileHandler.BLOCKS && format != FileHandler.INTERLEAVED_BLOCKS) {
+                    throw new IOException("Unknown transformed block format: " + format);
+                }
+            }
+            if (format != FileHandler.CANONICAL_TABLE && format != FileHandler.DICTIONARY_TABLE
+                    && format != FileHandler.SAMPLED && format != FileHandler.INDEXED && format != FileHandler.BLOCKS
+                    && format != FileHandler.INTERLEAVED_BLOCKS && format != FileHandler.STORED) {
+                throw new IOException("Compressed file format " + format + " cannot be read at an offset");
+            }
+            originalFileSize = header.readLong();
+            symbolCount = (originalFileSize + numberOfBytes - 1) / numberOfBytes;
+
+            if (format == FileHandler.STORED) {
+                storedStart = counter.count();
+                return;
+            }
+
+            if (format == FileHandler.BLOCKS || format == FileHandler.INTERLEAVED_BLOCKS) {
+                interleaved = format == FileHandler.INTERLEAVED_BLOCKS;
+                blockSize = header.readInt();
+                blockOffsets = new long[header.readInt() + 1];
+                storedBlocks = new boolean[blockOffsets.length - 1];
+                for (int block = 0; block < blockOffsets.length - 1; block++) {
+                    blockOffsets[block] = header.readLong();
+                    // bit length of the block
+                    storedBlocks[block] = header.readLong() == FileHandler.STORED_BLOCK;
+                }
+                blockOffsets[blockOffsets.length - 1] = channel.size();
+                return;
+            }
+
+            if (format == FileHandler.DICTIONARY_TABLE) {
+                DictionaryCache cache = DictionaryCache.of(dictionaries, dictionaryDirectory, filePath);
+                decoder = cache.get(header.readInt()).decoder();
+            } else if (format == FileHandler.SAMPLED) {
+                decoder = FileHandler.readSampledCodeTable(header, numberOfBytes);
+            } else {
+                decoder = HuffmanTable.read(header, numberOfBytes).decoder();
+            }
+            if (format == FileHandler.INDEXED) {
+                syncInterval = header.readInt();
+                syncOffsets = new long[header.readInt()];
+                for (int i = 0; i < syncOffsets.length; i++) {
+                    syncOffsets[i] = header.readLong();
+                }
+            } else {
+                // a single sync point at the start of the payload
+                syncInterval = Math.max(1, symbolCount);
+                syncOffsets = new long[]{0};
+            }
+            payloadStart = counter.count();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Length of the original file.
+     */
+    public long size() {
+        return originalFileSize;
+    }
+
+    /**
+     * Returns bytes [offset, offset + length) of the original file.
+     */
+    public byte[] read(long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > originalFileSize) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length)
+                    + ") is outside the file of " + originalFileSize + " bytes");
+        }
+        byte[] range = new byte[length];
+        if (length == 0) {
+            return range;
+        }
+        if (storedStart >= 0) {
+            FileHandler.readFully(channel, ByteBuffer.wrap(range), storedStart + offset);
+        } else if (blockOffsets != null) {
+            readBlocks(offset, range);
+        } else {
+            readSegments(offset, range);
+        }
+        return range;
+    }
+
+    @SuppressWarnings("try")
+    private void readSegments(long offset, byte[] range) throws IOException {
+        long firstSymbol = offset / numberOfBytes;
+        long lastSymbol = (offset + range.length - 1) / numberOfBytes;
+        int segment = (int) (firstSymbol / syncInterval);
+        int lastSegment = (int) (lastSymbol / syncInterval);
+        long startSymbol = segment * syncInterval;
+
+        long bitOffset = syncOffsets[segment];
+        long compressedStart = payloadStart + bitOffset / 8;
+        long compressedEnd = lastSegment + 1 < syncOffsets.length
+                ? payloadStart + (syncOffsets[lastSegment + 1] + 7) / 8 : channel.size();
+        BitReader reader;
+        if (compressedEnd - compressedStart <= HEAP_READ_LIMIT) {
+            byte[] data = new byte[(int) (compressedEnd - compressedStart)];
+            FileHandler.readFully(channel, ByteBuffer.wrap(data), compressedStart);
+            reader = new BitReader(data, 0, data.length);
+        } else {
+            reader = new BitReader(channel, compressedStart, compressedEnd, FileHandler.DEFAULT_WINDOW_SIZE);
+        }
+        // the segment starts inside this byte
+        reader.read((int) (bitOffset % 8));
+
+        int lastSymbolBytes = lastSymbol == symbolCount - 1
+                ? (int) (originalFileSize - (symbolCount - 1) * numberOfBytes) : numberOfBytes;
+        RangeOutputStream outputStream = new RangeOutputStream(range, offset - startSymbol * numberOfBytes);
+        try (CodecMetrics.Timer timer = CodecMetrics.shared().time(CodecMetrics.Phase.DECODE)) {
+            decoder.decode(reader, outputStream, lastSymbol - startSymbol + 1, lastSymbolBytes);
+        }
+        CodecMetrics.shared().decoded(lastSymbol - startSymbol + 1);
+    }
+
+    private void readBlocks(long offset, byte[] range) throws IOException {
+        long end = offset + range.length;
+        for (int block = (int) (offset / blockSize); (long) block * blockSize < end; block++) {
+            long blockStart = (long) block * blockSize;
+            int blockLength = (int) Math.min(blockSize, originalFileSize - blockStart);
+            long from = Math.max(offset, blockStart);
+            long to = Math.min(end, blockStart + blockLength);
+            if (storedBlocks[block]) {
+                FileHandler.readFully(channel, ByteBuffer.wrap(range, (int) (from - offset), (int) (to - from)),
+                        blockOffsets[block] + from - blockStart);
+                continue;
+            }
+            byte[] data = new byte[(int) (blockOffsets[block + 1] - blockOffsets[block])];
+            FileHandler.readFully(channel, ByteBuffer.wrap(data), blockOffsets[block]);
+            byte[] decoded = transformed
+                    ? FileHandler.decodeTransformedBlock(data, data.length, numberOfBytes, blockLength, interleaved, null)
+                    : FileHandler.decodeBlock(data, numberOfBytes, blockLength,
+                    (int) Math.min(blockLength, end - blockStart), interleaved);
+            System.arraycopy(decoded, (int) (from - blockStart), range, (int) (from - offset), (int) (to - from));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // keeps the range.length bytes written after the first skip bytes
+    private static class RangeOutputStream extends OutputStream {
+        private final byte[] range;
+        private long skip;
+        private int filled;
+
+        RangeOutputStream(byte[] range, long skip) {
+            this.range = range;
+            this.skip = skip;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            int skipped = (int) Math.min(skip, len);
+            skip -= skipped;
+            int count = Math.min(len - skipped, range.length - filled);
+            System.arraycopy(b, off + skipped, range, filled, count);
+            filled += count;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package Huffman_Algorithm;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decompresses a stream written by HuffmanOutputStream one block at a time, so memory use is bounded by the
+ * block size and not by the length of the stream.
+ */
+public class HuffmanInputStream extends FilterInputStream {
+    private int numberOfBytes;
+    private byte[] block = new byte[0];
+    private byte[] payload = new byte[0];
+    private int blockLength;
+    private int position;
+    private boolean endOfStream;
+
+    public HuffmanInputStream(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    // the format byte and the number of bytes per symbol were already read by the caller
+    HuffmanInputStream(InputStream inputStream, int numberOfBytes) {
+        super(inputStream);
+        this.numberOfBytes = numberOfBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == blockLength && !nextBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == blockLength && !nextBlock()) {
+            return -1;
+        }
+        int count = Math.min(len, blockLength - position);
+        System.arraycopy(block, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && (position < blockLength || nextBlock())) {
+            int count = (int) Math.min(n - skipped, blockLength - position);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return blockLength - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (endOfStream) {
+            return false;
+        }
+        if (numberOfBytes == 0) {
+            int format = in.read();
+            if (format != FileHandler.STREAM) {
+                throw new IOException("Not a Huffman stream, format: " + format);
+            }
+            numberOfBytes = in.read();
+            if (numberOfBytes < 1 || numberOfBytes > SymbolKey.MAX_BYTES) {
+                throw new IOException("Invalid number of bytes per symbol: " + numberOfBytes);
+            }
+        }
+
+        int length = readInt();
+        if (length == 0) {
+            endOfStream = true;
+            return false;
+        }
+        // a stored block has its length negated
+        boolean stored = length < 0;
+        if (stored) {
+            length = -length;
+        }
+        if (length <= 0 || length > HuffmanOutputStream.MAX_BLOCK_SIZE) {
+            throw new IOException("Invalid block length: " + length);
+        }
+        if (block.length < length) {
+            block = new byte[length];
+        }
+        if (stored) {
+            if (in.readNBytes(block, 0, length) != length) {
+                throw new EOFException("Truncated block");
+            }
+            blockLength = length;
+            position = 0;
+            return true;
+        }
+        HuffmanTable table = HuffmanTable.read(in, numberOfBytes);
+        int payloadLength = readInt();
+        if (payloadLength < 0) {
+            throw new IOException("Invalid payload length: " + payloadLength);
+        }
+        if (payload.length < payloadLength) {
+            payload = new byte[payloadLength];
+        }
+        if (in.readNBytes(payload, 0, payloadLength) != payloadLength) {
+            throw new EOFException("Truncated block");
+        }
+
+        int symbolCount = (length + numberOfBytes - 1) / numberOfBytes;
+        int lastSymbolBytes = length - (symbolCount - 1) * numberOfBytes;
+        table.decoder().decode(new BitReader(payload, 0, payloadLength), block, 0, symbolCount, lastSymbolBytes);
+        blockLength = length;
+        position = 0;
+        return true;
+    }
+
+    private int readInt() throws IOException {
+        int result = 0;
+        for (int i = 0; i < 4; i++) {
+            int byteValue = in.read();
+            if (byteValue == -1) {
+                throw new EOFException("Unexpected end of stream");
+            }
+            result = (result << 8) | byteValue;
+        }
+        return result;
+    }
+}
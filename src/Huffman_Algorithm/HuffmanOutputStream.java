@@ -0,0 +1,169 @@
+package Huffman_Algorithm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses everything written to it in blocks of at most blockSize bytes, each block with its own canonical
+ * code table, so memory use does not depend on the length of the stream.
+ * <p>
+ * Stream format: the STREAM format byte and the number of bytes per symbol, then one frame per block
+ * (original length, code table, payload length in bytes, payload) and a frame with length 0 at the end.
+ * A block whose code would take more than FileHandler.STORE_RATIO of its length is stored instead: its frame is the
+ * negated length followed by the bytes of the block, so random or already compressed data does not grow.
+ * Read it back with HuffmanInputStream, or FileHandler.decompress when it was written to a file.
+ */
+public class HuffmanOutputStream extends FilterOutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    static final int MAX_BLOCK_SIZE = 1024 * 1024 * 256;
+
+    private final int numberOfBytes;
+    private final byte[] block;
+    private final Histogram frequencies;
+    private final ByteArrayOutputStream payload;
+    private int blockLength;
+    private boolean headerWritten;
+    private boolean finished;
+
+    public HuffmanOutputStream(OutputStream outputStream, int numberOfBytes) {
+        this(outputStream, numberOfBytes, DEFAULT_BLOCK_SIZE);
+    }
+
+    public HuffmanOutputStream(OutputStream outputStream, int numberOfBytes, int blockSize) {
+        super(outputStream);
+        if (numberOfBytes < 1 || numberOfBytes > SymbolKey.MAX_BYTES) {
+            throw new IllegalArgumentException("Number of bytes per symbol must be between 1 and " + SymbolKey.MAX_BYTES);
+        }
+        if (blockSize < numberOfBytes || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between " + numberOfBytes + " and " + MAX_BLOCK_SIZE);
+        }
+        this.numberOfBytes = numberOfBytes;
+        // blocks hold whole symbols
+        this.block = new byte[blockSize - blockSize % numberOfBytes];
+        this.frequencies = new Histogram(numberOfBytes);
+        this.payload = new ByteArrayOutputStream();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == block.length) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int count = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+            if (blockLength == block.length) {
+                writeBlock();
+            }
+        }
+    }
+
+    /**
+     * Compresses the data written so far as a (possibly short) block and flushes it to the underlying stream.
+     * Only whole symbols are written, a trailing partial symbol waits for the next write.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        int wholeSymbols = blockLength - blockLength % numberOfBytes;
+        if (wholeSymbols > 0) {
+            int remaining = blockLength - wholeSymbols;
+            blockLength = wholeSymbols;
+            writeBlock();
+            System.arraycopy(block, wholeSymbols, block, 0, remaining);
+            blockLength = remaining;
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining data and the end of stream frame without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        writeHeader();
+        if (blockLength > 0) {
+            writeBlock();
+        }
+        writeInt(0);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            out.write(FileHandler.STREAM);
+            out.write(numberOfBytes);
+            headerWritten = true;
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        writeHeader();
+        frequencies.clear();
+        frequencies.add(block, 0, blockLength);
+        // the entropy bound saves building a code for data that cannot shrink
+        if (FileHandler.incompressible(frequencies, blockLength)) {
+            writeStoredBlock();
+            return;
+        }
+        HuffmanTable table = HuffmanTable.build(frequencies);
+
+        payload.reset();
+        BitWriter bitWriter = new BitWriter(payload);
+        table.encodeTable().encode(block, 0, blockLength, bitWriter);
+        bitWriter.flush();
+        if (table.headerSize() + 4 + payload.size() > FileHandler.STORE_RATIO * blockLength) {
+            writeStoredBlock();
+            return;
+        }
+
+        writeInt(blockLength);
+        table.write(out);
+        writeInt(payload.size());
+        payload.writeTo(out);
+        blockLength = 0;
+    }
+
+    private void writeStoredBlock() throws IOException {
+        writeInt(-blockLength);
+        out.write(block, 0, blockLength);
+        blockLength = 0;
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write((value >> 24) & 0xFF);
+        out.write((value >> 16) & 0xFF);
+        out.write((value >> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+}
@@ -0,0 +1,419 @@
+package Huffman_Algorithm;
+
+import jdk.net.ExtendedSocketOptions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A compression daemon: one long running JVM that runs the command lines HuffmanClient sends it, so small files do
+ * not pay for a JVM start and interpreted code on every call. It warms the codec up before it accepts clients, and
+ * keeps the decoding buffers and the loaded dictionaries with their decoding tables for all the calls. Every command
+ * runs on a FileHandler of its own, and what it prints is sent back to its client.
+ * <p>
+ * It listens on a Unix domain socket, or on a port of the loopback address only. A connection carries any number
+ * of requests, one after the other, see HuffmanClient for the protocol. Commands run as the user of the daemon, so
+ * only that user may send them: the socket file is only writable by its owner and clients of other users are
+ * refused, and on a port every connection must start with the token the daemon wrote to a file only its owner can
+ * read.
+ */
+public final class HuffmanServer implements Closeable {
+    // rounds of compressing and decompressing a generated file before the first client is accepted
+    private static final int WARM_UP_ROUNDS = 12;
+    private static final int WARM_UP_SIZE = 256 * 1024;
+    // System.out and System.err of the daemon send what a command prints to the client that runs it. Tasks the
+    // command hands to other threads, such as parallel blocks, still print to the daemon's console.
+    private static final ThreadLocal<OutputStream> OUTPUT = new ThreadLocal<>();
+
+    private final ServerSocketChannel channel;
+    private final Path socketPath;
+    // TCP only: the token every connection starts with, and the file it is in
+    private final byte[] token;
+    private final Path tokenPath;
+    // connections are cheap, a thread each, but at most `threads` commands run at once
+    private final ExecutorService connections;
+    private final Semaphore commands;
+    private final int threads;
+    // the open connections, closed by close() once no command runs
+    private final Set<SocketChannel> clients = ConcurrentHashMap.newKeySet();
+    private final Map<Path, DictionaryCache> dictionaries = new ConcurrentHashMap<>();
+    private final BufferPool buffers = new BufferPool(BufferPool.DEFAULT_MAX_BYTES);
+    private volatile boolean stopped;
+
+    /**
+     * Binds to a UnixDomainSocketAddress, or to the port of an InetSocketAddress on the loopback address.
+     * A socket file left by a daemon that is no longer running is replaced.
+     */
+    public HuffmanServer(SocketAddress address, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        if (address instanceof UnixDomainSocketAddress) {
+            socketPath = ((UnixDomainSocketAddress) address).getPath();
+            if (Files.exists(socketPath)) {
+                if (running(address)) {
+                    throw new IOException("A daemon is already listening on " + socketPath);
+                }
+                Files.delete(socketPath);
+            }
+            channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            socketPath = null;
+            channel = ServerSocketChannel.open();
+        }
+        channel.bind(address);
+        if (socketPath != null) {
+            ownerOnly(socketPath);
+            token = null;
+            tokenPath = null;
+        } else {
+            token = new byte[HuffmanClient.TOKEN_LENGTH];
+            new SecureRandom().nextBytes(token);
+            tokenPath = HuffmanClient.tokenPath(((InetSocketAddress) channel.getLocalAddress()).getPort());
+            Files.deleteIfExists(tokenPath);
+            Files.createFile(tokenPath);
+            ownerOnly(tokenPath);
+            Files.write(tokenPath, token);
+        }
+        connections = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "huffman-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        commands = new Semaphore(threads);
+        this.threads = threads;
+        routeOutput();
+    }
+
+    /**
+     * Usage: -server [-socket path | -port port] [-threads count], by default a socket in the temporary directory
+     * and one thread per core.
+     */
+    public static void main(String[] args) {
+        SocketAddress address = HuffmanClient.DEFAULT_ADDRESS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[i + 1]);
+            } else {
+                address = HuffmanClient.address(args[i], args[i + 1]);
+            }
+        }
+        try (HuffmanServer server = new HuffmanServer(address, threads)) {
+            CodecMetrics.register();
+            long startTime = System.currentTimeMillis();
+            server.warmUp();
+            System.out.println("Warmed up in " + (System.currentTimeMillis() - startTime) + " milliseconds");
+            System.out.println("Listening on " + (server.socketPath != null ? server.socketPath : address));
+            server.serve();
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception appropriately
+        }
+    }
+
+    /**
+     * Accepts clients until a client sends -stop or the server is closed.
+     */
+    public void serve() throws IOException {
+        while (!stopped) {
+            SocketChannel client;
+            try {
+                client = channel.accept();
+            } catch (ClosedChannelException e) {
+                // closed by close() or -stop
+                break;
+            }
+            if (socketPath == null) {
+                client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            clients.add(client);
+            try {
+                connections.execute(() -> handle(client));
+            } catch (RejectedExecutionException e) {
+                // close() is running
+                clients.remove(client);
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting clients and returns once the commands that are running are done and their responses sent.
+     * Requests that arrive later are refused.
+     */
+    @Override
+    public void close() throws IOException {
+        stopped = true;
+        channel.close();
+        // every permit is free once no command runs
+        commands.acquireUninterruptibly(threads);
+        commands.release(threads);
+        // wakes the connections that wait for a request
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+        connections.shutdown();
+        try {
+            connections.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (socketPath != null) {
+            Files.deleteIfExists(socketPath);
+        }
+        if (tokenPath != null) {
+            Files.deleteIfExists(tokenPath);
+        }
+    }
+
+    // the requests of one connection, until the client closes it
+    private void handle(SocketChannel client) {
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)))) {
+            if (!authorized(client, in)) {
+                return;
+            }
+            while (true) {
+                int count;
+                try {
+                    count = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                // a request the client would not send, closed before anything is allocated for it
+                if (count < 0 || count > HuffmanClient.MAX_ARGUMENTS) {
+                    return;
+                }
+                String[] args = new String[count];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = in.readUTF();
+                }
+                int payloadLength = in.readInt();
+                if (payloadLength < HuffmanClient.NO_PAYLOAD || payloadLength > HuffmanClient.MAX_PAYLOAD) {
+                    return;
+                }
+                byte[] payload = payloadLength == HuffmanClient.NO_PAYLOAD ? null : in.readNBytes(payloadLength);
+                if (payload != null && payload.length < payloadLength) {
+                    return;
+                }
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[][] result = new byte[1][];
+                // held until the response is sent, so close() does not cut it off
+                commands.acquireUninterruptibly();
+                try {
+                    int status = run(args, payload, output, result);
+                    byte[] text = output.toByteArray();
+                    out.writeInt(status);
+                    out.writeInt(text.length);
+                    out.write(text);
+                    out.writeInt(result[0] == null ? HuffmanClient.NO_PAYLOAD : result[0].length);
+                    if (result[0] != null) {
+                        out.write(result[0]);
+                    }
+                    out.flush();
+                } finally {
+                    commands.release();
+                }
+                if (stopped) {
+                    // serve() returns, and close() waits for the other connections
+                    channel.close();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // connections are closed by close() when the server stops
+            if (!stopped) {
+                e.printStackTrace(); // Handle or log the exception appropriately
+            }
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    // runs one request with its output going to output, an inline result goes to result[0]
+    private int run(String[] args, byte[] payload, OutputStream output, byte[][] result) {
+        if (args.length == 1 && args[0].equals(HuffmanClient.STOP)) {
+            stopped = true;
+            return HuffmanClient.OK;
+        }
+        if (stopped) {
+            new PrintStream(output, true).println("The daemon is stopping");
+            return HuffmanClient.FAILED;
+        }
+        OUTPUT.set(output);
+        try {
+            if (payload != null) {
+                result[0] = inline(args, payload);
+                if (result[0] != null) {
+                    return HuffmanClient.OK;
+                }
+            } else if (main.run(args, new FileHandler(dictionaries, buffers))) {
+                return HuffmanClient.OK;
+            }
+            main.printUsage();
+            return HuffmanClient.USAGE;
+        } catch (RuntimeException | IOException e) {
+            // printed to the client
+            e.printStackTrace();
+            return HuffmanClient.FAILED;
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            OUTPUT.remove();
+        }
+    }
+
+    // -c - <n> compresses the payload into the stream format of HuffmanOutputStream, -d - decompresses one,
+    // returns null for any other command
+    private static byte[] inline(String[] args, byte[] payload) throws IOException {
+        if (args.length == 2 && args[0].equals("-d") && args[1].equals("-")) {
+            try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(payload))) {
+                return in.readAllBytes();
+            }
+        }
+        if (args.length == 3 && args[0].equals("-c") && args[1].equals("-") && args[2].matches("\\d")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 2 + 64);
+            try (OutputStream out = new HuffmanOutputStream(compressed, Integer.parseInt(args[2]))) {
+                out.write(payload);
+            }
+            return compressed.toByteArray();
+        }
+        return null;
+    }
+
+    // compresses and decompresses a generated file the way clients do, so their first calls run compiled code
+    private void warmUp() throws IOException {
+        Path directory = Files.createTempDirectory("huffman-warm-up");
+        OUTPUT.set(OutputStream.nullOutputStream());
+        try {
+            // skewed bytes, with the 2 byte symbols a text has
+            byte[] data = new byte[WARM_UP_SIZE];
+            Random random = new Random(1);
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) ('a' + Math.min(25, (int) Math.abs(random.nextGaussian() * 6)));
+            }
+            Path file = directory.resolve("warm-up.txt");
+            Files.write(file, data);
+            for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+                for (int n = 1; n <= 2; n++) {
+                    String compressed = directory.resolve("20010888." + n + ".warm-up.txt.hc").toString();
+                    FileHandler context = new FileHandler(dictionaries, buffers);
+                    context.compress(file.toString(), n);
+                    context.decompress(compressed);
+                    context.compressBlocks(file.toString(), n, WARM_UP_SIZE / 4);
+                    context.decompress(compressed);
+                    inline(new String[]{"-d", "-"}, inline(new String[]{"-c", "-", Integer.toString(n)}, data));
+                }
+            }
+        } finally {
+            OUTPUT.remove();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+            // the warm-up is not part of what clients ran
+            CodecMetrics.shared().reset();
+        }
+    }
+
+    // a client of the daemon's user on the socket, or one that sent the token on a port
+    private boolean authorized(SocketChannel client, DataInputStream in) throws IOException {
+        if (token != null) {
+            return MessageDigest.isEqual(token, in.readNBytes(token.length));
+        }
+        if (!client.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+            // the permissions of the socket file are the only check
+            return true;
+        }
+        UserPrincipal user = client.getOption(ExtendedSocketOptions.SO_PEERCRED).user();
+        return user.equals(Files.getOwner(socketPath));
+    }
+
+    // rw for the owner only, where the file system has POSIX permissions
+    private static void ownerOnly(Path path) throws IOException {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system, files in the temporary directory are private to the user there
+        }
+    }
+
+    private static boolean running(SocketAddress address) {
+        try {
+            new HuffmanClient(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // replaces System.out and System.err once, with streams that write to OUTPUT when the thread has one set
+    private static synchronized void routeOutput() {
+        if (!(System.out instanceof RoutedStream)) {
+            System.setOut(new RoutedStream(System.out));
+            System.setErr(new RoutedStream(System.err));
+        }
+    }
+
+    private static final class RoutedStream extends PrintStream {
+        private RoutedStream(PrintStream console) {
+            super(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    target().write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    target().write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    target().flush();
+                }
+
+                private OutputStream target() {
+                    OutputStream output = OUTPUT.get();
+                    return output != null ? output : console;
+                }
+            }, true);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package Huffman_Algorithm;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Canonical Huffman code table of a block: the symbols sorted by (code length, symbol) with their code lengths
+ * and codes. It is built from the symbol frequencies using arrays only, and stored as the code lengths only:
+ * the maximum code length, the number of symbols of each length and then the symbols, numberOfBytes each.
+ */
+class HuffmanTable {
+    // codes are limited to this length unless the caller asks for another limit
+    static final int DEFAULT_MAX_CODE_LENGTH = 24;
+    // codes are handled in a long
+    static final int MAX_CODE_LENGTH = 64;
+
+    final int numberOfBytes;
+    final long[] keys;
+    final int[] lengths;
+    final long[] codes;
+
+    /**
+     * @param keys    packed symbols (see SymbolKey) in canonical order
+     * @param lengths code lengths in canonical order, ascending
+     */
+    HuffmanTable(int numberOfBytes, long[] keys, int[] lengths) {
+        this.numberOfBytes = numberOfBytes;
+        this.keys = keys;
+        this.lengths = lengths;
+        this.codes = CanonicalCode.assignCodes(lengths);
+    }
+
+    static HuffmanTable build(Histogram frequencies) {
+        return build(frequencies, DEFAULT_MAX_CODE_LENGTH);
+    }
+
+    static HuffmanTable build(Histogram frequencies, int maxCodeLength) {
+        long[] keys = new long[frequencies.size()];
+        long[] counts = new long[keys.length];
+        frequencies.copyTo(keys, counts);
+        return fromLengths(frequencies.numberOfBytes(), keys, codeLengths(counts, maxCodeLength));
+    }
+
+    /**
+     * Sorts the symbols into canonical (length, symbol) order and assigns the codes.
+     */
+    static HuffmanTable fromLengths(int numberOfBytes, long[] keys, int[] lengths) {
+        int maxLength = 0;
+        for (int length : lengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        int[] start = new int[maxLength + 2];
+        for (int length : lengths) {
+            start[length + 1]++;
+        }
+        for (int length = 1; length <= maxLength + 1; length++) {
+            start[length] += start[length - 1];
+        }
+
+        // sort by symbol, then a stable bucket sort by length
+        long[] keysBySymbol = Arrays.copyOf(keys, keys.length);
+        int[] order = radixSort(keysBySymbol);
+        long[] sortedKeys = new long[keys.length];
+        int[] sortedLengths = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            int length = lengths[order[i]];
+            int slot = start[length]++;
+            sortedKeys[slot] = keysBySymbol[i];
+            sortedLengths[slot] = length;
+        }
+        return new HuffmanTable(numberOfBytes, sortedKeys, sortedLengths);
+    }
+
+    static int[] codeLengths(long[] counts) {
+        return codeLengths(counts, DEFAULT_MAX_CODE_LENGTH);
+    }
+
+    /**
+     * Huffman code lengths for the given counts, no longer than maxCodeLength bits (see limitLengths).
+     * Every count must be positive.
+     */
+    static int[] codeLengths(long[] counts, int maxCodeLength) {
+        return limitLengths(huffmanCodeLengths(counts), maxCodeLength);
+    }
+
+    // the counts are sorted once, then the two queue merge runs in place in the sorted array (Moffat and Katajainen,
+    // "In-place calculation of minimum-redundancy codes"): the leaves are read in order and the merged nodes are
+    // created in order, so the two smallest nodes are always at the front of the two queues
+    private static int[] huffmanCodeLengths(long[] counts) {
+        int size = counts.length;
+        if (size <= 1) {
+            // a single symbol still needs a one bit code so the decoder can count it
+            int[] lengths = new int[size];
+            Arrays.fill(lengths, 1);
+            return lengths;
+        }
+        long[] weight = Arrays.copyOf(counts, size);
+        int[] order = radixSort(weight);
+
+        // first pass: node next is merged from the two smallest of the next leaf and the next merged node, a
+        // merged node that is used stores the index of its parent
+        weight[0] += weight[1];
+        int root = 0;
+        int leaf = 2;
+        for (int next = 1; next < size - 1; next++) {
+            if (leaf >= size || weight[root] < weight[leaf]) {
+                weight[next] = weight[root];
+                weight[root++] = next;
+            } else {
+                weight[next] = weight[leaf++];
+            }
+            if (leaf >= size || (root < next && weight[root] < weight[leaf])) {
+                weight[next] += weight[root];
+                weight[root++] = next;
+            } else {
+                weight[next] += weight[leaf++];
+            }
+        }
+
+        // second pass: depth of the merged nodes, the last one is the root
+        weight[size - 2] = 0;
+        for (int next = size - 3; next >= 0; next--) {
+            weight[next] = weight[(int) weight[next]] + 1;
+        }
+
+        // third pass: leaf depths, every level has twice as many slots as merged nodes on the level above
+        int[] lengths = new int[size];
+        int available = 1;
+        int depth = 0;
+        int next = size - 1;
+        root = size - 2;
+        while (available > 0) {
+            int used = 0;
+            while (root >= 0 && weight[root] == depth) {
+                used++;
+                root--;
+            }
+            while (available > used) {
+                lengths[order[next--]] = depth;
+                available--;
+            }
+            available = 2 * used;
+            depth++;
+        }
+        return lengths;
+    }
+
+    // sorts the values in place, compared as unsigned, with a least significant byte first radix sort that skips the
+    // bytes that are the same in every value. Returns the original index of each sorted value.
+    private static int[] radixSort(long[] values) {
+        int size = values.length;
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        long anyBits = 0;
+        long allBits = -1;
+        for (long value : values) {
+            anyBits |= value;
+            allBits &= value;
+        }
+        long varyingBits = anyBits ^ allBits;
+
+        long[] valueBuffer = new long[size];
+        int[] orderBuffer = new int[size];
+        int[] bucketStart = new int[257];
+        for (int shift = 0; shift < 64; shift += 8) {
+            if (((varyingBits >>> shift) & 0xFF) == 0) {
+                continue;
+            }
+            Arrays.fill(bucketStart, 0);
+            for (long value : values) {
+                bucketStart[(int) ((value >>> shift) & 0xFF) + 1]++;
+            }
+            for (int bucket = 1; bucket < bucketStart.length; bucket++) {
+                bucketStart[bucket] += bucketStart[bucket - 1];
+            }
+            for (int i = 0; i < size; i++) {
+                int slot = bucketStart[(int) ((values[i] >>> shift) & 0xFF)]++;
+                valueBuffer[slot] = values[i];
+                orderBuffer[slot] = order[i];
+            }
+            System.arraycopy(valueBuffer, 0, values, 0, size);
+            int[] swap = order;
+            order = orderBuffer;
+            orderBuffer = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Shortens the codes longer than maxCodeLength while keeping the code complete, the way JPEG does (Annex K.3):
+     * two codes of the longest length are replaced by one code a level up, and the deepest code shorter than that
+     * is split into two codes one level down. The symbols then take the new lengths in the order of their old
+     * lengths, so more frequent symbols keep the shorter codes. The limit is raised to fit more than
+     * 2^maxCodeLength symbols. Returns lengths itself when no code is too long.
+     */
+    static int[] limitLengths(int[] lengths, int maxCodeLength) {
+        if (maxCodeLength < 1 || maxCodeLength > MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Maximum code length must be between 1 and " + MAX_CODE_LENGTH);
+        }
+        int longest = 0;
+        for (int length : lengths) {
+            longest = Math.max(longest, length);
+        }
+        int limit = Math.max(maxCodeLength, 64 - Long.numberOfLeadingZeros(lengths.length - 1L));
+        if (longest <= limit) {
+            return lengths;
+        }
+
+        int[] lengthCounts = new int[longest + 1];
+        for (int length : lengths) {
+            lengthCounts[length]++;
+        }
+        for (int length = longest; length > limit; length--) {
+            // codes come in pairs at the deepest level of a complete code
+            while (lengthCounts[length] > 0) {
+                int shorter = length - 2;
+                while (lengthCounts[shorter] == 0) {
+                    shorter--;
+                }
+                lengthCounts[length] -= 2;
+                lengthCounts[length - 1]++;
+                lengthCounts[shorter + 1] += 2;
+                lengthCounts[shorter]--;
+            }
+        }
+
+        // order the symbols by old length with a counting sort, then hand out the new lengths shortest first
+        int[] start = new int[longest + 2];
+        for (int length : lengths) {
+            start[length + 1]++;
+        }
+        for (int length = 1; length <= longest + 1; length++) {
+            start[length] += start[length - 1];
+        }
+        int[] order = new int[lengths.length];
+        for (int i = 0; i < lengths.length; i++) {
+            order[start[lengths[i]]++] = i;
+        }
+        int[] limited = new int[lengths.length];
+        int length = 1;
+        for (int symbol : order) {
+            while (lengthCounts[length] == 0) {
+                length++;
+            }
+            lengthCounts[length]--;
+            limited[symbol] = length;
+        }
+        return limited;
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    int maxLength() {
+        return lengths.length == 0 ? 0 : lengths[lengths.length - 1];
+    }
+
+    /**
+     * Size of the table when written, in bytes.
+     */
+    int headerSize() {
+        return 1 + 4 * maxLength() + numberOfBytes * keys.length;
+    }
+
+    void write(OutputStream outputStream) throws IOException {
+        int maxLength = maxLength();
+        int[] lengthCounts = new int[maxLength + 1];
+        for (int length : lengths) {
+            lengthCounts[length]++;
+        }
+
+        byte[] header = new byte[headerSize()];
+        int position = 0;
+        header[position++] = (byte) maxLength;
+        for (int length = 1; length <= maxLength; length++) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                header[position++] = (byte) (lengthCounts[length] >>> shift);
+            }
+        }
+        for (long key : keys) {
+            SymbolKey.unpack(key, numberOfBytes, header, position);
+            position += numberOfBytes;
+        }
+        outputStream.write(header);
+    }
+
+    static HuffmanTable read(InputStream inputStream, int numberOfBytes) throws IOException {
+        int maxLength = inputStream.read();
+        if (maxLength < 0) {
+            throw new EOFException("Truncated Huffman code table");
+        }
+        byte[] counts = readFully(inputStream, 4 * maxLength);
+        int size = 0;
+        int[] lengthCounts = new int[maxLength + 1];
+        for (int length = 1; length <= maxLength; length++) {
+            int i = 4 * (length - 1);
+            lengthCounts[length] = ((counts[i] & 0xFF) << 24) | ((counts[i + 1] & 0xFF) << 16)
+                    | ((counts[i + 2] & 0xFF) << 8) | (counts[i + 3] & 0xFF);
+            size += lengthCounts[length];
+        }
+
+        byte[] symbols = readFully(inputStream, size * numberOfBytes);
+        long[] keys = new long[size];
+        int[] lengths = new int[size];
+        int i = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            for (int j = 0; j < lengthCounts[length]; j++, i++) {
+                keys[i] = SymbolKey.pack(symbols, i * numberOfBytes, numberOfBytes, symbols.length);
+                lengths[i] = length;
+            }
+        }
+        return new HuffmanTable(numberOfBytes, keys, lengths);
+    }
+
+    private static byte[] readFully(InputStream inputStream, int length) throws IOException {
+        byte[] bytes = inputStream.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Truncated Huffman code table");
+        }
+        return bytes;
+    }
+
+    EncodeTable encodeTable() {
+        return new EncodeTable(numberOfBytes, keys, codes, lengths);
+    }
+
+    /**
+     * Encoder for a table where escapeKey stands for the escape code: it gets no code of its own, so like every
+     * symbol that is not in the table it is written escaped, see EncodeTable.encodeEscaped.
+     */
+    EncodeTable encodeTable(long escapeKey) {
+        int escape = indexOf(escapeKey);
+        long[] otherKeys = new long[keys.length - 1];
+        long[] otherCodes = new long[otherKeys.length];
+        int[] otherLengths = new int[otherKeys.length];
+        for (int i = 0, j = 0; i < keys.length; i++) {
+            if (i != escape) {
+                otherKeys[j] = keys[i];
+                otherCodes[j] = codes[i];
+                otherLengths[j++] = lengths[i];
+            }
+        }
+        EncodeTable encodeTable = new EncodeTable(numberOfBytes, otherKeys, otherCodes, otherLengths);
+        encodeTable.setEscape(codes[escape], lengths[escape]);
+        return encodeTable;
+    }
+
+    TableDecoder decoder() {
+        return buildDecoder(-1);
+    }
+
+    // escapeIndex as in TableDecoder
+    private TableDecoder buildDecoder(int escapeIndex) {
+        byte[] symbols = new byte[keys.length * numberOfBytes];
+        for (int i = 0; i < keys.length; i++) {
+            SymbolKey.unpack(keys[i], numberOfBytes, symbols, i * numberOfBytes);
+        }
+        return new TableDecoder(numberOfBytes, symbols, codes, lengths, escapeIndex);
+    }
+
+    /**
+     * Decoder for a table where escapeKey stands for the escape code, see encodeTable(long).
+     */
+    TableDecoder decoder(long escapeKey) {
+        return buildDecoder(indexOf(escapeKey));
+    }
+
+    private int indexOf(long key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Symbol is not in the table");
+    }
+}
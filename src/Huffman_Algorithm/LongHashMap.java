@@ -0,0 +1,142 @@
+package Huffman_Algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from long keys to long values, without boxing.
+ * Uses linear probing; the key 0 is kept outside the table so 0 can mark an empty slot.
+ */
+class LongHashMap {
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    LongHashMap() {
+        this(16);
+    }
+
+    LongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(long key) {
+        // mix the high bits in, symbols often differ only in a few bytes
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    long get(long key, long defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    void put(long key, long value) {
+        if (key == 0) {
+            size += hasZeroKey ? 0 : 1;
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Adds delta to the value of key, a missing key counts as 0.
+     */
+    void addTo(long key, long delta) {
+        if (key == 0) {
+            size += hasZeroKey ? 0 : 1;
+            hasZeroKey = true;
+            zeroValue += delta;
+            return;
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Copies the keys and values into the given arrays (both at least size() long), returns the number copied.
+     */
+    int copyTo(long[] keysOut, long[] valuesOut) {
+        int i = 0;
+        if (hasZeroKey) {
+            keysOut[i] = 0;
+            valuesOut[i++] = zeroValue;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                keysOut[i] = keys[slot];
+                valuesOut[i++] = values[slot];
+            }
+        }
+        return i;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = hash(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
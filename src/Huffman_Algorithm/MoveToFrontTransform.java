@@ -0,0 +1,47 @@
+package Huffman_Algorithm;
+
+/**
+ * Replaces every byte with its position in a list of the 256 byte values, then moves it to the front of the list.
+ * Bytes that come back soon get small positions, so the clusters of equal bytes a Burrows-Wheeler transform makes
+ * turn into mostly zeros and small values, which order-0 Huffman coding handles well.
+ */
+class MoveToFrontTransform implements BlockTransform {
+    @Override
+    public byte[] forward(byte[] data, int length) {
+        byte[] list = identity();
+        byte[] positions = new byte[length];
+        for (int i = 0; i < length; i++) {
+            byte b = data[i];
+            int position = 0;
+            while (list[position] != b) {
+                position++;
+            }
+            System.arraycopy(list, 0, list, 1, position);
+            list[0] = b;
+            positions[i] = (byte) position;
+        }
+        return positions;
+    }
+
+    @Override
+    public byte[] inverse(byte[] data, int length) {
+        byte[] list = identity();
+        byte[] original = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int position = data[i] & 0xFF;
+            byte b = list[position];
+            System.arraycopy(list, 0, list, 1, position);
+            list[0] = b;
+            original[i] = b;
+        }
+        return original;
+    }
+
+    private static byte[] identity() {
+        byte[] list = new byte[256];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = (byte) i;
+        }
+        return list;
+    }
+}
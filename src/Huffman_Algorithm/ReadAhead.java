@@ -0,0 +1,133 @@
+package Huffman_Algorithm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The windows of a region of a file, memory mapped in order. With more than one buffer, an I/O thread maps the
+ * windows ahead of the caller and loads them into memory, up to buffers - 1 windows in advance, so the disk reads the
+ * next windows while the caller codes the current one. With one buffer the windows are mapped on the calling thread
+ * when they are asked for, and their pages are read as they are touched.
+ */
+final class ReadAhead implements Closeable {
+    // put after the last window, or after a failure
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final long end;
+    private final int windowSize;
+    private long position;
+    // null with one buffer
+    private final BlockingQueue<ByteBuffer> ready;
+    private final Thread thread;
+    // anything the I/O thread threw, such as an InternalError on a mapping of a file that was truncated
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    /**
+     * Reads bytes [start, end) of the file, windowSize bytes at a time.
+     */
+    ReadAhead(FileChannel channel, long start, long end, int windowSize, int buffers) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+        this.windowSize = windowSize;
+        if (buffers <= 1 || end - start <= windowSize) {
+            this.ready = null;
+            this.thread = null;
+            return;
+        }
+        this.ready = new ArrayBlockingQueue<>(buffers - 1);
+        this.thread = new Thread(this::readWindows, "huffman-read-ahead");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the next window, or null after the last one.
+     */
+    @SuppressWarnings("try")
+    ByteBuffer next() throws IOException {
+        if (ready == null) {
+            return position < end ? map() : null;
+        }
+        ByteBuffer window;
+        try (CodecMetrics.Timer timer = CodecMetrics.shared().time(CodecMetrics.Phase.IO_WAIT)) {
+            window = ready.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading ahead");
+        }
+        if (window == END) {
+            // later calls see the end again
+            ready.offer(END);
+            if (failure != null) {
+                throw new IOException("Read ahead failed", failure);
+            }
+            return null;
+        }
+        return window;
+    }
+
+    /**
+     * Stops the I/O thread, the windows it has not handed out are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        if (thread == null) {
+            return;
+        }
+        closed = true;
+        // makes room for a window the I/O thread may be waiting to put
+        ready.clear();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping the read ahead");
+        }
+    }
+
+    private MappedByteBuffer map() throws IOException {
+        long size = Math.min(windowSize, end - position);
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        position += size;
+        return window;
+    }
+
+    // whatever ends it, the I/O thread puts END, so next() never waits forever
+    private void readWindows() {
+        try {
+            while (!closed && position < end) {
+                ready.put(map().load());
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            putEnd();
+        }
+    }
+
+    private void putEnd() {
+        // after close() nobody takes any more
+        while (!closed) {
+            try {
+                // waits while the caller has not taken the last windows yet, close() empties the queue
+                if (ready.offer(END, 10, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                // only close() stops the I/O thread
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Run-length coding as in the first stage of bzip2: after 4 equal bytes comes one byte with the number of further
+ * repeats (0 to 251), other bytes are copied. Shortens long runs, such as padding or the zeros move-to-front makes
+ * of a Burrows-Wheeler transform, before Huffman coding, which spends at least one bit on every symbol. The result
+ * starts with the original length.
+ */
+class RunLengthTransform implements BlockTransform {
+    private static final int RUN_START = 4;
+    private static final int MAX_REPEATS = 251;
+
+    @Override
+    public byte[] forward(byte[] data, int length) {
+        // at most one count byte per RUN_START bytes
+        byte[] runs = new byte[4 + length + length / RUN_START];
+        ByteBuffer.wrap(runs).putInt(length);
+        int out = 4;
+        for (int i = 0; i < length; ) {
+            byte b = data[i];
+            int run = 1;
+            while (i + run < length && data[i + run] == b && run < RUN_START + MAX_REPEATS) {
+                run++;
+            }
+            for (int j = 0; j < Math.min(run, RUN_START); j++) {
+                runs[out++] = b;
+            }
+            if (run >= RUN_START) {
+                runs[out++] = (byte) (run - RUN_START);
+            }
+            i += run;
+        }
+        byte[] result = new byte[out];
+        System.arraycopy(runs, 0, result, 0, out);
+        return result;
+    }
+
+    @Override
+    public byte[] inverse(byte[] data, int length) throws IOException {
+        if (length < 4) {
+            throw new IOException("Invalid run-length block");
+        }
+        byte[] original = new byte[ByteBuffer.wrap(data).getInt()];
+        int out = 0;
+        int run = 0;
+        byte last = 0;
+        for (int i = 4; i < length; i++) {
+            if (run == RUN_START) {
+                int repeats = data[i] & 0xFF;
+                if (repeats > MAX_REPEATS || out + repeats > original.length) {
+                    throw new IOException("Invalid run-length block");
+                }
+                for (int j = 0; j < repeats; j++) {
+                    original[out++] = last;
+                }
+                run = 0;
+                continue;
+            }
+            if (out == original.length) {
+                throw new IOException("Invalid run-length block");
+            }
+            run = run > 0 && data[i] == last ? run + 1 : 1;
+            last = data[i];
+            original[out++] = last;
+        }
+        if (out != original.length) {
+            throw new IOException("Invalid run-length block");
+        }
+        return original;
+    }
+}
@@ -0,0 +1,37 @@
+package Huffman_Algorithm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs a symbol of up to 8 bytes into a long, first byte in the most significant position.
+ * Symbols cut short by the end of the input are padded with zero bytes.
+ */
+final class SymbolKey {
+    static final int MAX_BYTES = Long.BYTES;
+
+    private SymbolKey() {
+    }
+
+    static long pack(byte[] bytes, int offset, int numberOfBytes, int limit) {
+        long key = 0;
+        for (int j = 0; j < numberOfBytes; j++) {
+            key = (key << 8) | (offset + j < limit ? bytes[offset + j] & 0xFF : 0);
+        }
+        return key;
+    }
+
+    static long pack(ByteBuffer bytes, int offset, int numberOfBytes, int limit) {
+        long key = 0;
+        for (int j = 0; j < numberOfBytes; j++) {
+            key = (key << 8) | (offset + j < limit ? bytes.get(offset + j) & 0xFF : 0);
+        }
+        return key;
+    }
+
+    static void unpack(long key, int numberOfBytes, byte[] bytes, int offset) {
+        for (int j = numberOfBytes - 1; j >= 0; j--) {
+            bytes[offset + j] = (byte) key;
+            key >>>= 8;
+        }
+    }
+}
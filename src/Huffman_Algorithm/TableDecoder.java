@@ -0,0 +1,395 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Table driven Huffman decoder.
+ * Instead of walking the tree one bit at a time, the next PRIMARY_BITS bits of the input are used as an index
+ * into a lookup table which gives the decoded symbol and its code length in one probe.
+ * Codes longer than the primary table point to smaller second level tables (and so on for very long codes).
+ * Bits are read least significant bit first, the same order the encoder writes them.
+ */
+class TableDecoder {
+    static final int PRIMARY_BITS = 11;
+    private static final int SUB_BITS = 8;
+
+    // entry layout: bits 0-7 length / child width, bit 8 leaf flag, bit 9 link flag, bit 10 escape flag,
+    // bits 16+ symbol / child offset
+    private static final long LEAF = 1L << 8;
+    private static final long LINK = 1L << 9;
+    private static final long ESCAPE = 1L << 10;
+
+    private final int numberOfBytes;
+    private final byte[] symbols;
+    private final int primaryBits;
+    private final int escapeIndex;
+    private long[] table;
+    private int tableSize;
+
+    /**
+     * Decoder that only returns symbol indexes, see tryDecodeIndex.
+     */
+    TableDecoder(long[] codes, int[] lengths) {
+        this(0, new byte[0], codes, lengths);
+    }
+
+    /**
+     * @param symbols flat array of numberOfBytes bytes per symbol, symbol i starts at i * numberOfBytes
+     * @param codes   the code of symbol i, first bit of the code in bit 0
+     * @param lengths the code length of symbol i
+     */
+    TableDecoder(int numberOfBytes, byte[] symbols, long[] codes, int[] lengths) {
+        this(numberOfBytes, symbols, codes, lengths, -1);
+    }
+
+    /**
+     * @param escapeIndex the symbol that stands for an escape code, followed in the input by the raw bytes of a
+     *                    symbol that has no code of its own, or -1
+     */
+    TableDecoder(int numberOfBytes, byte[] symbols, long[] codes, int[] lengths, int escapeIndex) {
+        this.numberOfBytes = numberOfBytes;
+        this.symbols = symbols;
+        this.escapeIndex = escapeIndex;
+
+        int maxLength = 0;
+        for (int length : lengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        this.primaryBits = Math.max(1, Math.min(PRIMARY_BITS, maxLength));
+
+        int[] all = new int[lengths.length];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        this.table = new long[1 << primaryBits];
+        this.tableSize = 1 << primaryBits;
+        fill(0, primaryBits, 0, all, all.length, codes, lengths);
+    }
+
+    private static long peekBits(long code, int from, int width) {
+        return from >= 64 ? 0 : (code >>> from) & ((1L << width) - 1);
+    }
+
+    // fills the table at offset that decodes bits [consumed, consumed + width) of the given codes
+    private void fill(int offset, int width, int consumed, int[] members, int count, long[] codes, int[] lengths) {
+        int[] groupSizes = null;
+        for (int m = 0; m < count; m++) {
+            int i = members[m];
+            int remaining = lengths[i] - consumed;
+            int index = (int) peekBits(codes[i], consumed, Math.min(width, remaining));
+            if (remaining <= width) {
+                // every index whose low bits match the code decodes to this symbol
+                long entry = ((long) i << 16) | LEAF | (i == escapeIndex ? ESCAPE : 0) | remaining;
+                for (int k = index; k < (1 << width); k += (1 << remaining)) {
+                    table[offset + k] = entry;
+                }
+            } else {
+                if (groupSizes == null) {
+                    groupSizes = new int[1 << width];
+                }
+                groupSizes[index]++;
+            }
+        }
+        if (groupSizes == null) {
+            return;
+        }
+
+        // codes longer than this level are grouped by their prefix (one counting sort pass) and get their own
+        // child table
+        int[] groupStart = new int[groupSizes.length + 1];
+        for (int prefix = 0; prefix < groupSizes.length; prefix++) {
+            groupStart[prefix + 1] = groupStart[prefix] + groupSizes[prefix];
+        }
+        int[] grouped = new int[groupStart[groupSizes.length]];
+        int[] next = groupStart.clone();
+        int[] maxRemaining = new int[groupSizes.length];
+        for (int m = 0; m < count; m++) {
+            int i = members[m];
+            int remaining = lengths[i] - consumed;
+            if (remaining > width) {
+                int prefix = (int) peekBits(codes[i], consumed, width);
+                grouped[next[prefix]++] = i;
+                maxRemaining[prefix] = Math.max(maxRemaining[prefix], remaining - width);
+            }
+        }
+        for (int prefix = 0; prefix < groupSizes.length; prefix++) {
+            if (groupSizes[prefix] == 0) {
+                continue;
+            }
+            int[] group = Arrays.copyOfRange(grouped, groupStart[prefix], groupStart[prefix + 1]);
+            int childWidth = Math.min(SUB_BITS, maxRemaining[prefix]);
+            int childOffset = allocate(1 << childWidth);
+            table[offset + prefix] = ((long) childOffset << 16) | LINK | childWidth;
+            fill(childOffset, childWidth, consumed + width, group, group.length, codes, lengths);
+        }
+    }
+
+    private int allocate(int size) {
+        if (tableSize + size > table.length) {
+            long[] grown = new long[Math.max(table.length * 2, tableSize + size)];
+            System.arraycopy(table, 0, grown, 0, tableSize);
+            table = grown;
+        }
+        int offset = tableSize;
+        tableSize += size;
+        return offset;
+    }
+
+    /**
+     * Decodes symbolCount symbols from the input and writes them to the output.
+     * The last symbol is cut to lastSymbolBytes bytes when the original file length is not a multiple of numberOfBytes.
+     */
+    void decode(BitReader reader, OutputStream outputStream, long symbolCount, int lastSymbolBytes) throws IOException {
+        int chunkSymbols = Math.max(1, 64 * 1024 / numberOfBytes);
+        byte[] out = new byte[chunkSymbols * numberOfBytes];
+
+        for (long decoded = 0; decoded < symbolCount; ) {
+            int count = (int) Math.min(chunkSymbols, symbolCount - decoded);
+            decoded += count;
+            int length = decode(reader, out, 0, count, decoded == symbolCount ? lastSymbolBytes : numberOfBytes);
+            outputStream.write(out, 0, length);
+        }
+    }
+
+    /**
+     * Decodes symbolCount symbols into output starting at offset, the last one cut to lastSymbolBytes bytes.
+     * Returns the number of bytes written.
+     */
+    int decode(BitReader reader, byte[] output, int offset, int symbolCount, int lastSymbolBytes) throws IOException {
+        int outPosition = offset;
+        long mask = (1L << primaryBits) - 1;
+
+        for (int s = 0; s < symbolCount; s++) {
+            if (reader.bitCount < PRIMARY_BITS) {
+                reader.refill();
+            }
+
+            long entry = table[(int) (reader.bitBuffer & mask)];
+            int width = primaryBits;
+            while ((entry & LINK) != 0) {
+                reader.skip(width);
+                if (reader.bitCount < SUB_BITS) {
+                    // long codes can use up the bit buffer
+                    reader.refill();
+                }
+                width = (int) (entry & 0xFF);
+                entry = table[(int) (entry >>> 16) + (int) (reader.bitBuffer & ((1L << width) - 1))];
+            }
+            if ((entry & LEAF) == 0) {
+                throw new IOException("Invalid Huffman code in compressed data");
+            }
+            reader.skip((int) (entry & 0xFF));
+
+            int symbolIndex = (int) (entry >>> 16);
+            if ((entry & ESCAPE) != 0) {
+                int symbolBytes = s == symbolCount - 1 ? lastSymbolBytes : numberOfBytes;
+                for (int j = 0; j < numberOfBytes; j++) {
+                    byte raw = (byte) reader.read(8);
+                    if (j < symbolBytes) {
+                        output[outPosition + j] = raw;
+                    }
+                }
+                outPosition += symbolBytes;
+            } else if (numberOfBytes == 1) {
+                output[outPosition++] = symbols[symbolIndex];
+            } else {
+                int symbolBytes = s == symbolCount - 1 ? lastSymbolBytes : numberOfBytes;
+                System.arraycopy(symbols, symbolIndex * numberOfBytes, output, outPosition, symbolBytes);
+                outPosition += symbolBytes;
+            }
+        }
+        return outPosition - offset;
+    }
+
+    /**
+     * Decodes four streams at once, one symbol of each per iteration. The four bit positions do not depend on each
+     * other, so the CPU can overlap the four table lookups instead of waiting on one bit position.
+     * Stream i holds symbols [i * segmentSymbols, (i + 1) * segmentSymbols) of the output, the last stream the rest.
+     * Every symbol is written whole, output must have room for symbolCount * numberOfBytes bytes.
+     */
+    void decodeInterleaved(BitReader[] readers, byte[] output, int symbolCount, int segmentSymbols)
+            throws IOException {
+        BitReader reader0 = readers[0];
+        BitReader reader1 = readers[1];
+        BitReader reader2 = readers[2];
+        BitReader reader3 = readers[3];
+        int segmentBytes = segmentSymbols * numberOfBytes;
+        int position0 = 0;
+        int position1 = segmentBytes;
+        int position2 = 2 * segmentBytes;
+        int position3 = 3 * segmentBytes;
+        long mask = (1L << primaryBits) - 1;
+
+        // the last stream is the shortest, the others catch up afterwards. The bit buffers are kept in locals so the
+        // four streams stay in registers, the readers are only used to refill them
+        int lastSegmentSymbols = Math.max(0, symbolCount - 3 * segmentSymbols);
+        long bits0 = reader0.bitBuffer;
+        long bits1 = reader1.bitBuffer;
+        long bits2 = reader2.bitBuffer;
+        long bits3 = reader3.bitBuffer;
+        int count0 = reader0.bitCount;
+        int count1 = reader1.bitCount;
+        int count2 = reader2.bitCount;
+        int count3 = reader3.bitCount;
+        for (int s = 0; s < lastSegmentSymbols; s++) {
+            if (Math.min(Math.min(count0, count1), Math.min(count2, count3)) < PRIMARY_BITS) {
+                reader0.bitBuffer = bits0;
+                reader0.bitCount = count0;
+                reader0.refill();
+                bits0 = reader0.bitBuffer;
+                count0 = reader0.bitCount;
+                reader1.bitBuffer = bits1;
+                reader1.bitCount = count1;
+                reader1.refill();
+                bits1 = reader1.bitBuffer;
+                count1 = reader1.bitCount;
+                reader2.bitBuffer = bits2;
+                reader2.bitCount = count2;
+                reader2.refill();
+                bits2 = reader2.bitBuffer;
+                count2 = reader2.bitCount;
+                reader3.bitBuffer = bits3;
+                reader3.bitCount = count3;
+                reader3.refill();
+                bits3 = reader3.bitBuffer;
+                count3 = reader3.bitCount;
+            }
+            long entry0 = table[(int) (bits0 & mask)];
+            long entry1 = table[(int) (bits1 & mask)];
+            long entry2 = table[(int) (bits2 & mask)];
+            long entry3 = table[(int) (bits3 & mask)];
+            int index0;
+            int index1;
+            int index2;
+            int index3;
+            if (((entry0 & entry1 & entry2 & entry3) & LEAF) != 0) {
+                int length0 = (int) (entry0 & 0xFF);
+                int length1 = (int) (entry1 & 0xFF);
+                int length2 = (int) (entry2 & 0xFF);
+                int length3 = (int) (entry3 & 0xFF);
+                bits0 >>>= length0;
+                bits1 >>>= length1;
+                bits2 >>>= length2;
+                bits3 >>>= length3;
+                count0 -= length0;
+                count1 -= length1;
+                count2 -= length2;
+                count3 -= length3;
+                index0 = (int) (entry0 >>> 16);
+                index1 = (int) (entry1 >>> 16);
+                index2 = (int) (entry2 >>> 16);
+                index3 = (int) (entry3 >>> 16);
+            } else {
+                // a code longer than the primary table
+                reader0.bitBuffer = bits0;
+                reader0.bitCount = count0;
+                reader1.bitBuffer = bits1;
+                reader1.bitCount = count1;
+                reader2.bitBuffer = bits2;
+                reader2.bitCount = count2;
+                reader3.bitBuffer = bits3;
+                reader3.bitCount = count3;
+                index0 = decodeIndex(reader0);
+                index1 = decodeIndex(reader1);
+                index2 = decodeIndex(reader2);
+                index3 = decodeIndex(reader3);
+                bits0 = reader0.bitBuffer;
+                count0 = reader0.bitCount;
+                bits1 = reader1.bitBuffer;
+                count1 = reader1.bitCount;
+                bits2 = reader2.bitBuffer;
+                count2 = reader2.bitCount;
+                bits3 = reader3.bitBuffer;
+                count3 = reader3.bitCount;
+            }
+
+            if (numberOfBytes == 1) {
+                output[position0++] = symbols[index0];
+                output[position1++] = symbols[index1];
+                output[position2++] = symbols[index2];
+                output[position3++] = symbols[index3];
+            } else {
+                System.arraycopy(symbols, index0 * numberOfBytes, output, position0, numberOfBytes);
+                System.arraycopy(symbols, index1 * numberOfBytes, output, position1, numberOfBytes);
+                System.arraycopy(symbols, index2 * numberOfBytes, output, position2, numberOfBytes);
+                System.arraycopy(symbols, index3 * numberOfBytes, output, position3, numberOfBytes);
+                position0 += numberOfBytes;
+                position1 += numberOfBytes;
+                position2 += numberOfBytes;
+                position3 += numberOfBytes;
+            }
+        }
+        reader0.bitBuffer = bits0;
+        reader0.bitCount = count0;
+        reader1.bitBuffer = bits1;
+        reader1.bitCount = count1;
+        reader2.bitBuffer = bits2;
+        reader2.bitCount = count2;
+        reader3.bitBuffer = bits3;
+        reader3.bitCount = count3;
+
+        int[] positions = {position0, position1, position2};
+        for (int stream = 0; stream < 3; stream++) {
+            int streamSymbols = Math.max(0, Math.min(segmentSymbols, symbolCount - stream * segmentSymbols));
+            int remaining = streamSymbols - lastSegmentSymbols;
+            decode(readers[stream], output, positions[stream], remaining, numberOfBytes);
+        }
+    }
+
+    // decodes one symbol index, following links to the sub-tables
+    private int decodeIndex(BitReader reader) throws IOException {
+        if (reader.bitCount < PRIMARY_BITS) {
+            reader.refill();
+        }
+        long entry = table[(int) (reader.bitBuffer & ((1L << primaryBits) - 1))];
+        int width = primaryBits;
+        while ((entry & LINK) != 0) {
+            reader.skip(width);
+            if (reader.bitCount < SUB_BITS) {
+                reader.refill();
+            }
+            width = (int) (entry & 0xFF);
+            entry = table[(int) (entry >>> 16) + (int) (reader.bitBuffer & ((1L << width) - 1))];
+        }
+        if ((entry & LEAF) == 0) {
+            throw new IOException("Invalid Huffman code in compressed data");
+        }
+        reader.skip((int) (entry & 0xFF));
+        return (int) (entry >>> 16);
+    }
+
+    /**
+     * Decodes the index of the next symbol using only the bits already in the reader's bit buffer.
+     * Returns -1 without consuming anything when the code is longer than the bits available.
+     */
+    int tryDecodeIndex(BitReader reader) throws IOException {
+        long bits = reader.bitBuffer;
+        int available = reader.bitCount;
+        long entry = table[(int) (bits & ((1L << primaryBits) - 1))];
+        int used = 0;
+        int width = primaryBits;
+        while ((entry & LINK) != 0) {
+            used += width;
+            if (used > available) {
+                return -1;
+            }
+            width = (int) (entry & 0xFF);
+            entry = table[(int) (entry >>> 16) + (int) ((bits >>> used) & ((1L << width) - 1))];
+        }
+        if ((entry & LEAF) == 0) {
+            if (used + width > available) {
+                // the missing bits may still complete a valid code
+                return -1;
+            }
+            throw new IOException("Invalid Huffman code in compressed data");
+        }
+        int length = used + (int) (entry & 0xFF);
+        if (length > available) {
+            return -1;
+        }
+        reader.skip(length);
+        return (int) (entry >>> 16);
+    }
+}
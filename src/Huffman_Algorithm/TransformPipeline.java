@@ -0,0 +1,158 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The transforms applied to one block before Huffman coding (see FileHandler.setTransform), chosen per block.
+ * Every candidate pipeline is run on the block and the one whose output has the smallest Huffman coded size bound
+ * (Histogram.codedSizeBound) wins, which may be none at all. Candidates share the stages they start with, so the
+ * Burrows-Wheeler transform is computed once per block.
+ * <p>
+ * A block of a TRANSFORMED_BLOCKS file starts with the number of stages and their IDs in the order they were
+ * applied, then, if there is any stage, the length of the transformed data. The code table and payload of the
+ * transformed data follow. A new transform needs an unused ID, an entry in TRANSFORMS and a candidate using it.
+ */
+final class TransformPipeline {
+    // the IDs recorded in a block
+    static final int RUN_LENGTH = 1;
+    static final int MOVE_TO_FRONT = 2;
+    static final int BURROWS_WHEELER = 3;
+    private static final BlockTransform[] TRANSFORMS = {
+            null, new RunLengthTransform(), new MoveToFrontTransform(), new BurrowsWheelerTransform()};
+    // the pipelines tried on every block besides no transform at all, each in the order its stages are applied
+    private static final List<int[]> CANDIDATES = List.of(
+            new int[]{RUN_LENGTH},
+            new int[]{BURROWS_WHEELER, MOVE_TO_FRONT},
+            new int[]{BURROWS_WHEELER, MOVE_TO_FRONT, RUN_LENGTH});
+    // more stages than this in a block means it is corrupt
+    private static final int MAX_STAGES = 8;
+
+    private final int[] stages;
+    // the length of the transformed data, which is Huffman coded
+    private final int length;
+    // compression only: the transformed data and its symbol counts
+    private final byte[] data;
+    private final Histogram frequencies;
+
+    private TransformPipeline(int[] stages, int length, byte[] data, Histogram frequencies) {
+        this.stages = stages;
+        this.length = length;
+        this.data = data;
+        this.frequencies = frequencies;
+    }
+
+    /**
+     * Runs the candidates on the first length bytes of block and returns the one whose output should code smallest,
+     * frequencies are the counts of the block itself.
+     */
+    static TransformPipeline choose(byte[] block, int length, int numberOfBytes, Histogram frequencies) {
+        TransformPipeline best = new TransformPipeline(new int[0], length, block, frequencies);
+        double bestSize = frequencies.codedSizeBound();
+        // the output of every prefix of a candidate, so candidates starting alike share the work
+        Map<String, byte[]> outputs = new HashMap<>();
+        for (int[] candidate : CANDIDATES) {
+            if (contains(candidate, BURROWS_WHEELER) && length > BurrowsWheelerTransform.MAX_BLOCK) {
+                continue;
+            }
+            byte[] output = block;
+            int outputLength = length;
+            for (int stage = 0; stage < candidate.length; stage++) {
+                String prefix = Arrays.toString(Arrays.copyOf(candidate, stage + 1));
+                byte[] input = output;
+                int inputLength = outputLength;
+                int id = candidate[stage];
+                output = outputs.computeIfAbsent(prefix, key -> TRANSFORMS[id].forward(input, inputLength));
+                outputLength = output.length;
+            }
+            Histogram transformed = new Histogram(numberOfBytes);
+            transformed.add(output, 0, outputLength);
+            // the stage header is the same few bytes for every candidate
+            double size = transformed.codedSizeBound();
+            if (size < bestSize) {
+                best = new TransformPipeline(candidate, outputLength, output, transformed);
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reads the stages recorded at the start of a block, blockLength is the length of the original block.
+     */
+    static TransformPipeline read(byte[] block, int blockLength) throws IOException {
+        if (block[0] < 0 || block[0] > MAX_STAGES) {
+            throw new IOException("Invalid number of block transforms: " + block[0]);
+        }
+        int[] stages = new int[block[0]];
+        for (int stage = 0; stage < stages.length; stage++) {
+            stages[stage] = block[1 + stage];
+            if (stages[stage] < 1 || stages[stage] >= TRANSFORMS.length) {
+                throw new IOException("Unknown block transform: " + stages[stage]);
+            }
+        }
+        int length = stages.length == 0 ? blockLength : ByteBuffer.wrap(block, 1 + stages.length, 4).getInt();
+        if (length < 0) {
+            throw new IOException("Invalid transformed block length: " + length);
+        }
+        return new TransformPipeline(stages, length, null, null);
+    }
+
+    void write(OutputStream outputStream) throws IOException {
+        outputStream.write(stages.length);
+        for (int stage : stages) {
+            outputStream.write(stage);
+        }
+        if (stages.length > 0) {
+            outputStream.write(ByteBuffer.allocate(4).putInt(length).array());
+        }
+    }
+
+    // the bytes write writes
+    int headerSize() {
+        return 1 + stages.length + (stages.length > 0 ? 4 : 0);
+    }
+
+    /**
+     * Undoes the stages on the first length() bytes of decoded, the Huffman decoded data of the block.
+     */
+    byte[] inverse(byte[] decoded) throws IOException {
+        byte[] data = decoded;
+        int dataLength = length;
+        for (int stage = stages.length - 1; stage >= 0; stage--) {
+            data = TRANSFORMS[stages[stage]].inverse(data, dataLength);
+            dataLength = data.length;
+        }
+        return data;
+    }
+
+    boolean isEmpty() {
+        return stages.length == 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    byte[] data() {
+        return data;
+    }
+
+    Histogram frequencies() {
+        return frequencies;
+    }
+
+    private static boolean contains(int[] stages, int id) {
+        for (int stage : stages) {
+            if (stage == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
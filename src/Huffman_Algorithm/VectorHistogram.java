@@ -0,0 +1,79 @@
+package Huffman_Algorithm;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Histogram kernels for 1 and 2 byte symbols on the incubating Vector API. Each step loads one vector of symbols;
+ * if all lanes hold the same symbol, as in long runs, it is counted once with the vector length, otherwise the
+ * lanes are counted in interleaved sub-histograms like the scalar kernels of Histogram. Only loaded when the JVM
+ * runs with --add-modules jdk.incubator.vector, see Histogram.VECTOR.
+ */
+final class VectorHistogram {
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+
+    private VectorHistogram() {
+    }
+
+    /**
+     * Counts bytes [offset, limit) into direct, runs, or into the 8 sub-histograms of 256 counters in lanes.
+     * Returns where it stopped, the rest is less than one vector.
+     */
+    static int addBytes(ByteBuffer input, int offset, int limit, long[] direct, int[] lanes) {
+        int length = BYTES.length();
+        byte[] symbols = new byte[length];
+        int i = offset;
+        for (; i + length <= limit; i += length) {
+            ByteVector vector = ByteVector.fromByteBuffer(BYTES, input, i, ByteOrder.nativeOrder());
+            byte first = vector.lane(0);
+            if (vector.compare(VectorOperators.EQ, first).allTrue()) {
+                direct[first & 0xFF] += length;
+                continue;
+            }
+            vector.intoArray(symbols, 0);
+            for (int j = 0; j < length; j += 8) {
+                lanes[symbols[j] & 0xFF]++;
+                lanes[256 + (symbols[j + 1] & 0xFF)]++;
+                lanes[512 + (symbols[j + 2] & 0xFF)]++;
+                lanes[768 + (symbols[j + 3] & 0xFF)]++;
+                lanes[1024 + (symbols[j + 4] & 0xFF)]++;
+                lanes[1280 + (symbols[j + 5] & 0xFF)]++;
+                lanes[1536 + (symbols[j + 6] & 0xFF)]++;
+                lanes[1792 + (symbols[j + 7] & 0xFF)]++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Counts the 2 byte symbols (first byte most significant) in [offset, limit) into direct, runs, or into the 4
+     * sub-histograms of 65536 counters in lanes. Returns where it stopped, the rest is less than one vector.
+     */
+    static int addPairs(ByteBuffer input, int offset, int limit, long[] direct, int[] lanes) {
+        int length = SHORTS.length();
+        short[] symbols = new short[length];
+        int i = offset;
+        for (; i + 2 * length <= limit; i += 2 * length) {
+            ShortVector vector = ShortVector.fromByteBuffer(SHORTS, input, i, ByteOrder.BIG_ENDIAN);
+            short first = vector.lane(0);
+            if (vector.compare(VectorOperators.EQ, first).allTrue()) {
+                direct[first & 0xFFFF] += length;
+                continue;
+            }
+            vector.intoArray(symbols, 0);
+            for (int j = 0; j < length; j += 4) {
+                lanes[symbols[j] & 0xFFFF]++;
+                lanes[65536 + (symbols[j + 1] & 0xFFFF)]++;
+                lanes[131072 + (symbols[j + 2] & 0xFFFF)]++;
+                lanes[196608 + (symbols[j + 3] & 0xFFFF)]++;
+            }
+        }
+        return i;
+    }
+}
@@ -0,0 +1,148 @@
+package Huffman_Algorithm;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A buffered output stream whose full buffers are written by an I/O thread, so the caller fills the next buffer while
+ * the previous ones are written. The caller waits only when all buffers are waiting to be written. flush() returns
+ * once everything written so far has reached the underlying stream, and a write error of the I/O thread is thrown by
+ * the next write, flush or close.
+ */
+final class WriteBehindOutputStream extends OutputStream {
+    // put after the last buffer
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final OutputStream outputStream;
+    private final int buffers;
+    // buffers the I/O thread has written, and buffers waiting for it
+    private final BlockingQueue<byte[]> free;
+    private final BlockingQueue<ByteBuffer> full;
+    private final Thread thread;
+    // anything a write threw
+    private volatile Throwable failure;
+    private byte[] buffer;
+    private int count;
+    private boolean closed;
+
+    WriteBehindOutputStream(OutputStream outputStream, int buffers, int bufferSize) {
+        if (buffers < 2) {
+            throw new IllegalArgumentException("Write behind needs at least 2 buffers");
+        }
+        this.outputStream = outputStream;
+        this.buffers = buffers;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.full = new ArrayBlockingQueue<>(buffers + 1);
+        for (int i = 1; i < buffers; i++) {
+            free.add(new byte[bufferSize]);
+        }
+        this.buffer = new byte[bufferSize];
+        this.thread = new Thread(this::writeBuffers, "huffman-write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            submit();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == buffer.length) {
+                submit();
+            }
+            int copied = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, copied);
+            count += copied;
+            off += copied;
+            len -= copied;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            submit();
+        }
+        // every other buffer is back once the I/O thread has written it
+        byte[][] written = new byte[buffers - 1][];
+        for (int i = 0; i < written.length; i++) {
+            written[i] = take();
+        }
+        for (byte[] b : written) {
+            free.add(b);
+        }
+        checkFailure();
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            full.add(END);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            outputStream.close();
+        }
+    }
+
+    // hands the current buffer to the I/O thread and continues in a free one
+    private void submit() throws IOException {
+        checkFailure();
+        full.add(ByteBuffer.wrap(buffer, 0, count));
+        buffer = take();
+        count = 0;
+    }
+
+    @SuppressWarnings("try")
+    private byte[] take() throws IOException {
+        try (CodecMetrics.Timer timer = CodecMetrics.shared().time(CodecMetrics.Phase.IO_WAIT)) {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a write");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Write behind failed", failure);
+        }
+    }
+
+    private void writeBuffers() {
+        try {
+            for (ByteBuffer next = full.take(); next != END; next = full.take()) {
+                // after a failure the buffers are only returned, so the caller never waits forever
+                if (failure == null) {
+                    try {
+                        outputStream.write(next.array(), 0, next.limit());
+                    } catch (Throwable e) {
+                        failure = e;
+                    }
+                }
+                free.add(next.array());
+            }
+        } catch (InterruptedException e) {
+            // the stream is abandoned
+        }
+    }
+}
@@ -1,17 +1,156 @@
 package Huffman_Algorithm;
 
+import java.io.File;
+import java.util.Arrays;
+
 
 public class main {
     public static void main(String[] args) {
-        if (args.length == 2 || args.length == 3) {
+        if (args.length >= 1 && args[0].equals("-server")) {
+            // keep the JVM running and take commands from HuffmanClient
+            HuffmanServer.main(Arrays.copyOfRange(args, 1, args.length));
+        } else if (!run(args, new FileHandler())) {
+            printUsage();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs one command line on the given FileHandler, returns false when the arguments are not valid.
+     * The daemon runs the commands of its clients through here, each on a FileHandler of its own.
+     */
+    static boolean run(String[] args, FileHandler fileHandler) {
+        if (args.length >= 4 && args[0].equals("-t")) {
+            // train a dictionary: -t <dictionary_directory> <n> <sample_file>...
+            String dictionaryPath = fileHandler.trainDictionary(args[1], Integer.parseInt(args[2]),
+                    Arrays.copyOfRange(args, 3, args.length));
+            if (dictionaryPath != null) {
+                // the file is named after the dictionary ID
+                System.out.println("Dictionary: " + dictionaryPath);
+            }
+        }
+        else if (args.length >= 2) {
             String option = args[0];
             String FilePath = args[1];
-            FileHandler fileHandler = new FileHandler();
-            if (args.length == 3) {
-                int n = Integer.parseInt(args[2]);
+            boolean decompress = option.equals("-d");
+            if (!decompress && args.length < 3) {
+                return false;
+            }
+            boolean canonical = true;
+            int blockSize = 0;
+            int rebuildInterval = 0;
+            boolean list = false;
+            boolean archive = false;
+            boolean metrics = false;
+            boolean interleave = false;
+            boolean transform = false;
+            // -dict, -sync and -sample only apply to files with one code table
+            boolean oneTable = false;
+            int threads = Runtime.getRuntime().availableProcessors();
+            for (int i = decompress ? 2 : 3; i < args.length; i++) {
+                if (args[i].equals("-explicit")) {
+                    canonical = false;
+                } else if (args[i].equals("-blocks")) {
+                    blockSize = FileHandler.DEFAULT_BLOCK_SIZE;
+                    // optional block size in MB
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        blockSize = Integer.parseInt(args[++i]) * 1024 * 1024;
+                    }
+                } else if (args[i].equals("-adaptive")) {
+                    rebuildInterval = AdaptiveHuffmanOutputStream.DEFAULT_REBUILD_INTERVAL;
+                    // optional rebuild interval in KB
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        rebuildInterval = Integer.parseInt(args[++i]) * 1024;
+                    }
+                } else if (args[i].equals("-interleave")) {
+                    fileHandler.setInterleaved(true);
+                    interleave = true;
+                } else if (args[i].equals("-transform")) {
+                    fileHandler.setTransform(true);
+                    transform = true;
+                } else if (args[i].equals("-sync")) {
+                    int syncInterval = FileHandler.DEFAULT_SYNC_INTERVAL;
+                    // optional number of symbols between two sync points
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        syncInterval = Integer.parseInt(args[++i]);
+                    }
+                    fileHandler.setSyncInterval(syncInterval);
+                    oneTable = true;
+                } else if (args[i].equals("-sample")) {
+                    int sampleSize = FileHandler.DEFAULT_SAMPLE_SIZE;
+                    // optional sample size in MB
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        sampleSize = Integer.parseInt(args[++i]) * 1024 * 1024;
+                    }
+                    fileHandler.setSampleSize(sampleSize);
+                    oneTable = true;
+                } else if (args[i].equals("-maxlen") && i + 1 < args.length) {
+                    fileHandler.setMaxCodeLength(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-list")) {
+                    list = true;
+                } else if (args[i].equals("-archive")) {
+                    archive = true;
+                } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-dict") && i + 1 < args.length) {
+                    fileHandler.setDictionary(args[++i]);
+                    oneTable = true;
+                } else if (args[i].equals("-dictdir") && i + 1 < args.length) {
+                    fileHandler.setDictionaryDirectory(args[++i]);
+                } else if (args[i].equals("-metrics")) {
+                    metrics = true;
+                    CodecMetrics.register();
+                } else if (args[i].equals("-window") && i + 1 < args.length) {
+                    fileHandler.setWindowSize(Integer.parseInt(args[++i]) * 1024 * 1024);
+                } else if (args[i].equals("-iobuffers") && i + 1 < args.length) {
+                    fileHandler.setIoBuffers(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-writebuffer") && i + 1 < args.length) {
+                    fileHandler.setWriteBufferSize(Integer.parseInt(args[++i]) * 1024);
+                } else {
+                    return false;
+                }
+            }
+            // -interleave and -transform imply -blocks, transforms with smaller blocks
+            if (blockSize == 0 && (interleave || transform)) {
+                blockSize = FileHandler.defaultBlockSize(transform);
+            }
+            if (!decompress) {
+                // every block has a canonical code table of its own
+                if (blockSize > 0 && (!canonical || oneTable)) {
+                    return false;
+                }
+                boolean batch = list || archive || new File(FilePath).isDirectory();
+                // every file of a batch gets one code table
+                if (batch && blockSize > 0) {
+                    return false;
+                }
+                // "auto" tries every number of bytes per symbol and keeps the one giving the smallest file
+                boolean auto = args[2].equals("auto");
+                if (auto && batch) {
+                    return false;
+                }
                 //start calculating time
                 long startTime = System.currentTimeMillis();
-                fileHandler.compress(FilePath, n);
+                int n = auto ? 0 : Integer.parseInt(args[2]);
+                if (auto && (rebuildInterval > 0 || blockSize > 0)) {
+                    n = fileHandler.chooseNumberOfBytes(FilePath);
+                    printEstimates(fileHandler.getEstimatedSizes(), n);
+                }
+                if (batch) {
+                    fileHandler.compressBatch(FilePath, n, list, archive, threads);
+                } else if (auto && n == 0) {
+                    n = fileHandler.compressAuto(FilePath, canonical);
+                    printEstimates(fileHandler.getEstimatedSizes(), n);
+                } else if (rebuildInterval > 0) {
+                    fileHandler.compressAdaptive(FilePath, n, rebuildInterval);
+                } else if (blockSize > 0) {
+                    fileHandler.compressBlocks(FilePath, n, blockSize);
+                } else {
+                    fileHandler.compress(FilePath, n, canonical);
+                }
+                if (fileHandler.getDictionaryFallback() != null) {
+                    System.out.println(fileHandler.getDictionaryFallback());
+                }
                 //end calculating time
                 long endTime = System.currentTimeMillis();
                 System.out.println("Time taken: " + (endTime - startTime) + " milliseconds");
@@ -22,12 +161,52 @@ public class main {
                 long endTime = System.currentTimeMillis();
                 System.out.println("Time taken: " + (endTime - startTime) + " milliseconds");
             }
+            if (metrics) {
+                System.out.println(CodecMetrics.shared());
+            }
         }
         else {
-            System.out.println("Usage: java huffman_20010888 <option> <absolute_path_to_input_file> <n>");
-            System.out.println("option: -c for compression, -d for decompression");
-            System.out.println("n: number of bytes to be used for each symbol");
-            System.exit(1);
+            return false;
         }
+        return true;
+    }
+
+    // the sizes compressAuto or chooseNumberOfBytes estimated, and the number of bytes per symbol they chose
+    private static void printEstimates(long[] estimatedSizes, int n) {
+        if (estimatedSizes != null) {
+            for (int width = 1; width < estimatedSizes.length; width++) {
+                if (estimatedSizes[width] >= 0) {
+                    System.out.println("Estimated size with " + width + " bytes per symbol: " + estimatedSizes[width]
+                            + " bytes");
+                }
+            }
+        }
+        System.out.println("Number of bytes per symbol: " + n);
+    }
+
+    static void printUsage() {
+        System.out.println("Usage: java huffman_20010888 -c <absolute_path_to_input_file_or_directory> <n> [options]");
+        System.out.println("       java huffman_20010888 -d <absolute_path_to_input_file> [options]");
+        System.out.println("       java huffman_20010888 -t <dictionary_directory> <n> <sample_file>...");
+        System.out.println("       java huffman_20010888 -server [-socket <path> | -port <port>] [-threads <count>]");
+        System.out.println("option: -c for compression, -d for decompression, -t to train a dictionary on sample files");
+        System.out.println("n: number of bytes to be used for each symbol, or auto to pick the one giving the smallest file (not for a directory or list)");
+        System.out.println("-explicit: store every Huffman code in the header instead of canonical code lengths");
+        System.out.println("-blocks [MB]: compress blocks of the given size (default 16 MB) in parallel");
+        System.out.println("-adaptive [KB]: single pass adaptive code, rebuilt every given KB (default 32 KB)");
+        System.out.println("-interleave: split every block into 4 streams that are decoded together (implies -blocks)");
+        System.out.println("-transform: run-length, move-to-front or Burrows-Wheeler transform every block where it helps (implies -blocks 1)");
+        System.out.println("-sync [symbols]: record a sync point every given number of symbols (default 1048576) so decompression runs in parallel");
+        System.out.println("-sample [MB]: count the symbols of a sample of the file (default 16 MB) instead of the whole file");
+        System.out.println("-maxlen <bits>: longest Huffman code (default 24)");
+        System.out.println("-list: the input is a file with one path per line, all of them are compressed in one run");
+        System.out.println("-archive: write the files of a directory or list into one archive instead of a .hc file each");
+        System.out.println("-threads <count>: threads compressing the files of a directory or list (default: one per core)");
+        System.out.println("-dict <file>: code the file with a trained dictionary and store only its ID");
+        System.out.println("-dictdir <directory>: where decompression finds dictionaries (default: next to the compressed file)");
+        System.out.println("-metrics: print the time of every phase, bytes, symbols and code lengths at the end (also published over JMX)");
+        System.out.println("-window <MB>: size of the memory mapped window used to read files (default 64 MB)");
+        System.out.println("-iobuffers <count>: windows read ahead and buffers written behind the coding thread, 1 for none (default 3)");
+        System.out.println("-writebuffer <KB>: size of every buffer written behind (default 1024 KB)");
     }
 }
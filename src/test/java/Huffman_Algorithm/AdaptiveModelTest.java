@@ -0,0 +1,79 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * When the adaptive code is rebuilt, when old symbols drop out, and that the encoder and decoder models agree.
+ */
+class AdaptiveModelTest {
+    @Test
+    void earlyRebuilds() {
+        AdaptiveModel model = new AdaptiveModel(1, 10_000, false);
+        // symbols get a code at the rebuilds after 256, 256 + 4096 and then every 10000 symbols
+        assertKnownAfter(model, 0, 256);
+        assertKnownAfter(model, 1, 4096);
+        assertKnownAfter(model, 2, 10_000);
+        assertKnownAfter(model, 3, 10_000);
+    }
+
+    @Test
+    void shortIntervalBeforeTheEarlyRebuilds() {
+        AdaptiveModel model = new AdaptiveModel(1, 100, false);
+        assertKnownAfter(model, 0, 100);
+        assertKnownAfter(model, 1, 100);
+    }
+
+    @Test
+    void unusedSymbolsDropOut() {
+        AdaptiveModel model = new AdaptiveModel(1, 100, false);
+        for (int i = 0; i < 1000; i++) {
+            model.update('a', false);
+        }
+        assertNotEquals(-1, model.indexOf('a'));
+        for (int i = 0; i < 20_000; i++) {
+            model.update('b', false);
+        }
+        assertEquals(-1, model.indexOf('a'));
+        assertNotEquals(-1, model.indexOf('b'));
+        // only 'b' and the special symbols are left
+        assertEquals(1, model.specialIndex(AdaptiveModel.ESCAPE));
+    }
+
+    @Test
+    void encoderAndDecoderAgree() {
+        AdaptiveModel encoder = new AdaptiveModel(3, 1000, false);
+        AdaptiveModel decoder = new AdaptiveModel(3, 1000, true);
+        byte[] text = TestData.text(60_000, 1);
+        for (int i = 0; i < text.length; i += 3) {
+            long key = SymbolKey.pack(text, i, 3, text.length);
+            boolean escaped = encoder.indexOf(key) < 0;
+            encoder.update(key, escaped);
+            decoder.update(key, escaped);
+        }
+        int size = encoder.specialIndex(AdaptiveModel.FLUSH) + 1;
+        assertEquals(size, decoder.specialIndex(AdaptiveModel.FLUSH) + 1);
+        assertTrue(size > 3);
+        for (int i = 0; i < size; i++) {
+            if (encoder.special(i) < 0) {
+                assertEquals(encoder.key(i), decoder.key(i));
+            }
+            assertEquals(encoder.code(i), decoder.code(i));
+            assertEquals(encoder.length(i), decoder.length(i));
+        }
+    }
+
+    // feeds a new symbol, then other symbols, and checks it gets a code with the rebuild after symbols updates
+    private static void assertKnownAfter(AdaptiveModel model, long key, int symbols) {
+        model.update(key, true);
+        for (int i = 1; i < symbols - 1; i++) {
+            model.update('z', false);
+        }
+        assertEquals(-1, model.indexOf(key), "before the rebuild");
+        model.update('z', false);
+        assertNotEquals(-1, model.indexOf(key), "after the rebuild");
+    }
+}
@@ -0,0 +1,97 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reads back what BitWriter wrote, from an array, a buffer, a stream that returns a few bytes per read and a file
+ * mapped a few bytes at a time.
+ */
+class BitReaderTest {
+    private static final int CODES = 10_000;
+
+    @Test
+    void array() throws IOException {
+        byte[] input = written();
+        byte[] padded = new byte[input.length + 5];
+        System.arraycopy(input, 0, padded, 3, input.length);
+        assertReads(new BitReader(padded, 3, 3 + input.length));
+    }
+
+    @Test
+    void buffer() throws IOException {
+        byte[] input = written();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(input.length);
+        buffer.put(input).flip();
+        assertReads(new BitReader(buffer));
+    }
+
+    @Test
+    void stream() throws IOException {
+        InputStream inputStream = new ByteArrayInputStream(written()) {
+            @Override
+            public synchronized int read(byte[] bytes, int offset, int length) {
+                return super.read(bytes, offset, Math.min(length, 3));
+            }
+        };
+        assertReads(new BitReader(inputStream, new byte[16]));
+    }
+
+    @Test
+    void mappedWindows(@TempDir Path directory) throws IOException {
+        byte[] input = written();
+        Path file = Files.write(directory.resolve("bits"), input);
+        try (FileChannel channel = FileChannel.open(file)) {
+            assertReads(new BitReader(channel, 0, input.length, 13));
+        }
+    }
+
+    @Test
+    void zerosPastTheEnd() throws IOException {
+        BitReader reader = new BitReader(new byte[]{(byte) 0xFF}, 0, 1);
+        assertEquals(0x0FF, reader.read(12));
+        assertEquals(0, reader.read(56));
+    }
+
+    @Test
+    void alignToByte() throws IOException {
+        BitReader reader = new BitReader(new byte[]{(byte) 0xFF, 0x5A}, 0, 2);
+        reader.read(3);
+        reader.refill();
+        reader.alignToByte();
+        assertEquals(0x5A, reader.read(8));
+    }
+
+    // codes of 1 to 56 bits, the lengths and values come from a seeded Random, see assertReads
+    private static byte[] written() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitWriter writer = new BitWriter(bytes);
+        Random random = new Random(1);
+        for (int i = 0; i < CODES; i++) {
+            int length = 1 + random.nextInt(56);
+            writer.write(random.nextLong() >>> (64 - length), length);
+        }
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void assertReads(BitReader reader) throws IOException {
+        Random random = new Random(1);
+        for (int i = 0; i < CODES; i++) {
+            int length = 1 + random.nextInt(56);
+            assertEquals(random.nextLong() >>> (64 - length), reader.read(length), "code " + i);
+        }
+    }
+}
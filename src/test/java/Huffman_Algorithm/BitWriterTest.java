@@ -0,0 +1,63 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the bits BitWriter writes with the same bits set one at a time in a BitSet.
+ */
+class BitWriterTest {
+    @Test
+    void codesOfEveryLength() throws IOException {
+        Random random = new Random(1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // a one word buffer, so it is written out after every word
+        BitWriter writer = new BitWriter(bytes, Long.BYTES);
+        BitSet expected = new BitSet();
+        int position = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int length = random.nextInt(65);
+            long code = length == 0 ? 0 : random.nextLong() >>> (64 - length);
+            writer.write(code, length);
+            for (int bit = 0; bit < length; bit++) {
+                expected.set(position++, (code >>> bit & 1) != 0);
+            }
+        }
+        assertEquals(position, writer.bitsWritten());
+        writer.flush();
+        assertArrayEquals(Arrays.copyOf(expected.toByteArray(), (position + 7) / 8), bytes.toByteArray());
+    }
+
+    @Test
+    void alignToByte() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitWriter writer = new BitWriter(bytes);
+        writer.write(0b101, 3);
+        writer.alignToByte();
+        assertEquals(8, writer.bitsWritten());
+        writer.alignToByte();
+        writer.write(0b11, 2);
+        writer.flush();
+        assertArrayEquals(new byte[]{0b101, 0b11}, bytes.toByteArray());
+    }
+
+    @Test
+    void flushWholeBytesKeepsThePartialByte() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitWriter writer = new BitWriter(bytes);
+        writer.write(0xABC, 12);
+        writer.flushWholeBytes();
+        assertArrayEquals(new byte[]{(byte) 0xBC}, bytes.toByteArray());
+        writer.write(0xD, 4);
+        writer.flush();
+        assertArrayEquals(new byte[]{(byte) 0xBC, (byte) 0xDA}, bytes.toByteArray());
+    }
+}
@@ -0,0 +1,114 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The run-length, move-to-front and Burrows-Wheeler transforms: inverse undoes forward on runs of every length
+ * around the run-length limits, text, random bytes and blocks shorter than their array, the suffix array matches a
+ * plain sort, and corrupt blocks are rejected.
+ */
+class BlockTransformTest {
+    private static final BlockTransform[] TRANSFORMS = {
+            new RunLengthTransform(), new MoveToFrontTransform(), new BurrowsWheelerTransform()};
+
+    @Test
+    void inverseUndoesForward() throws IOException {
+        for (BlockTransform transform : TRANSFORMS) {
+            for (byte[] input : inputs()) {
+                assertRoundTrip(transform, input, input.length);
+                // only the first bytes of the array are the block
+                assertRoundTrip(transform, input, input.length / 2);
+            }
+        }
+    }
+
+    @Test
+    void knownOutputs() {
+        byte[] banana = "banana".getBytes(StandardCharsets.US_ASCII);
+        // the sorted rotations of banana$ end in a n n b $ a a
+        assertArrayEquals(new byte[]{0, 0, 0, 4, 'a', 'n', 'n', 'b', 'a', 'a'},
+                new BurrowsWheelerTransform().forward(banana, banana.length));
+        assertArrayEquals(new byte[]{'b', 'b', 'n', 1, 1, 1}, new MoveToFrontTransform().forward(banana, 6));
+
+        byte[] run = new byte[300];
+        Arrays.fill(run, (byte) 7);
+        // 4 bytes and 251 repeats, then 4 bytes and the 41 left
+        assertArrayEquals(new byte[]{0, 0, 1, 44, 7, 7, 7, 7, (byte) 251, 7, 7, 7, 7, 41},
+                new RunLengthTransform().forward(run, run.length));
+    }
+
+    @Test
+    void suffixArray() {
+        Random random = new Random(1);
+        for (int alphabet : new int[]{1, 2, 3, 256}) {
+            for (int length : new int[]{0, 1, 2, 3, 10, 1000}) {
+                byte[] data = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    data[i] = (byte) random.nextInt(alphabet);
+                }
+                assertArrayEquals(sortedSuffixes(data), BurrowsWheelerTransform.suffixArray(data, length),
+                        alphabet + " symbols, " + length + " bytes");
+            }
+        }
+    }
+
+    @Test
+    void corruptBurrowsWheelerBlock() {
+        BlockTransform transform = new BurrowsWheelerTransform();
+        // too short for the sentinel row
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{0, 0, 0}, 3));
+        // the sentinel row outside the block, and in row 0, which always starts with the sentinel
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{-1, -1, -1, -1, 'a'}, 5));
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{0, 0, 0, 2, 'a'}, 5));
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{0, 0, 0, 0, 'a'}, 5));
+        // a sentinel row that ends the walk through the rows before every byte is read
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{0, 0, 0, 1, 'a', 'a', 'a'}, 7));
+    }
+
+    @Test
+    void corruptRunLengthBlock() {
+        BlockTransform transform = new RunLengthTransform();
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{0, 0, 0}, 3));
+        // more repeats than a count can hold
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{0, 0, 1, 0, 7, 7, 7, 7, (byte) 252}, 9));
+        // the bytes do not add up to the length at the start
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{0, 0, 0, 2, 7, 7, 7}, 7));
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{0, 0, 0, 4, 7, 7, 7}, 7));
+        assertThrows(IOException.class, () -> transform.inverse(new byte[]{0, 0, 0, 5, 7, 7, 7, 7, 2}, 9));
+    }
+
+    private static void assertRoundTrip(BlockTransform transform, byte[] input, int length) throws IOException {
+        byte[] forward = transform.forward(input, length);
+        assertArrayEquals(Arrays.copyOf(input, length), transform.inverse(forward, forward.length),
+                transform.getClass().getSimpleName() + ", " + length + " bytes");
+    }
+
+    // runs of 1 to 260 bytes, across the run-length limits, then text, random bytes and the edge cases
+    private static byte[][] inputs() {
+        ByteBuffer runs = ByteBuffer.allocate(260 * 261 / 2);
+        for (int run = 1; run <= 260; run++) {
+            for (int i = 0; i < run; i++) {
+                runs.put((byte) run);
+            }
+        }
+        byte[] zeros = new byte[100_000];
+        return new byte[][]{new byte[0], {'a'}, {0, 0}, runs.array(), zeros, TestData.text(100_000, 1),
+                TestData.random(10_000)};
+    }
+
+    private static int[] sortedSuffixes(byte[] data) {
+        return IntStream.range(0, data.length).boxed()
+                .sorted((a, b) -> Arrays.compareUnsigned(data, a, data.length, data, b, data.length))
+                .mapToInt(Integer::intValue).toArray();
+    }
+}
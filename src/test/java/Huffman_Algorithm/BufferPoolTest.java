@@ -0,0 +1,48 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Reuses released arrays that are long enough and stops pooling at the byte limit.
+ */
+class BufferPoolTest {
+    @Test
+    void releasedArrayIsReused() {
+        BufferPool pool = new BufferPool(1024);
+        byte[] buffer = pool.acquire(100);
+        assertEquals(100, buffer.length);
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire(50));
+        assertNotSame(buffer, pool.acquire(50));
+    }
+
+    @Test
+    void shortArrayIsDropped() {
+        BufferPool pool = new BufferPool(1024);
+        byte[] buffer = new byte[10];
+        pool.release(buffer);
+        assertEquals(100, pool.acquire(100).length);
+        // the short array was taken out of the pool, not put back
+        assertNotSame(buffer, pool.acquire(10));
+    }
+
+    @Test
+    void limit() {
+        BufferPool pool = new BufferPool(150);
+        byte[] first = new byte[100];
+        byte[] second = new byte[100];
+        pool.release(first);
+        pool.release(second);
+        assertSame(first, pool.acquire(100));
+        assertNotSame(first, pool.acquire(100));
+
+        // nothing is pooled with a limit of 0
+        BufferPool none = new BufferPool(0);
+        none.release(first);
+        assertNotSame(first, none.acquire(100));
+    }
+}
@@ -0,0 +1,46 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Codes rebuilt from the code lengths alone.
+ */
+class CanonicalCodeTest {
+    @Test
+    void codesOfSortedLengths() {
+        // 0, 10, 110, 111 with the first bit in bit 0
+        assertArrayEquals(new long[]{0b0, 0b01, 0b011, 0b111}, CanonicalCode.assignCodes(new int[]{1, 2, 3, 3}));
+        // 00, 01, 10, 110, 1110, 1111
+        assertArrayEquals(new long[]{0b00, 0b10, 0b01, 0b011, 0b0111, 0b1111},
+                CanonicalCode.assignCodes(new int[]{2, 2, 2, 3, 4, 4}));
+    }
+
+    @Test
+    void longestCodes() {
+        int[] lengths = new int[65];
+        for (int i = 0; i < 64; i++) {
+            lengths[i] = i + 1;
+        }
+        lengths[64] = 64;
+        long[] codes = CanonicalCode.assignCodes(lengths);
+        // 111...10 and 111...11, reversed
+        assertEquals(Long.MAX_VALUE, codes[63]);
+        assertEquals(-1L, codes[64]);
+    }
+
+    @Test
+    void unsortedLengths() {
+        assertThrows(IllegalArgumentException.class, () -> CanonicalCode.assignCodes(new int[]{2, 1}));
+    }
+
+    @Test
+    void reverse() {
+        assertEquals(0b0011, CanonicalCode.reverse(0b1100, 4));
+        assertEquals(0, CanonicalCode.reverse(0, 0));
+        assertEquals(Long.MIN_VALUE, CanonicalCode.reverse(1, 64));
+    }
+}
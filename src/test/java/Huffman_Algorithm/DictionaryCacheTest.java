@@ -0,0 +1,67 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Loading dictionaries by ID, keeping the most recently used ones and rejecting files that do not match their ID.
+ */
+class DictionaryCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsTheMostRecentlyUsed() throws IOException {
+        int[] ids = new int[3];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = train(i).id;
+        }
+        DictionaryCache cache = new DictionaryCache(directory, 2);
+        HuffmanDictionary first = cache.get(ids[0]);
+        HuffmanDictionary second = cache.get(ids[1]);
+        assertSame(first, cache.get(ids[0]));
+        // the third one evicts the second, the least recently used, which is then loaded again
+        cache.get(ids[2]);
+        assertSame(first, cache.get(ids[0]));
+        assertNotSame(second, cache.get(ids[1]));
+    }
+
+    @Test
+    void oneCachePerDirectory() {
+        Map<Path, DictionaryCache> caches = new HashMap<>();
+        DictionaryCache nextToTheFile = DictionaryCache.of(caches, null, directory.resolve("a.hc").toString());
+        assertSame(nextToTheFile, DictionaryCache.of(caches, directory, "elsewhere/b.hc"));
+        assertNotSame(nextToTheFile, DictionaryCache.of(caches, directory.resolve("other"), "a.hc"));
+    }
+
+    @Test
+    void missingOrMismatchedDictionary() throws IOException {
+        HuffmanDictionary dictionary = train(0);
+        DictionaryCache cache = new DictionaryCache(directory, 2);
+        assertThrows(IOException.class, () -> cache.get(dictionary.id + 1));
+
+        // a dictionary saved under another ID
+        Files.move(directory.resolve(HuffmanDictionary.fileName(dictionary.id)),
+                directory.resolve(HuffmanDictionary.fileName(dictionary.id + 1)));
+        assertThrows(IOException.class, () -> cache.get(dictionary.id + 1));
+    }
+
+    private HuffmanDictionary train(long seed) throws IOException {
+        byte[] sample = TestData.text(10_000, seed);
+        Histogram histogram = new Histogram(1);
+        histogram.add(sample, 0, sample.length);
+        HuffmanDictionary dictionary = HuffmanDictionary.train(histogram, HuffmanTable.DEFAULT_MAX_CODE_LENGTH);
+        dictionary.save(directory);
+        return dictionary;
+    }
+}
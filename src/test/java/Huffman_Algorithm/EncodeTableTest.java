@@ -0,0 +1,62 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Encodes through the direct arrays (1 and 2 byte symbols) and the hashed index (wider symbols) and compares the
+ * output with the codes written one symbol at a time.
+ */
+class EncodeTableTest {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void encode(int n) throws IOException {
+        // the last symbol is partial and padded with zero bytes
+        byte[] text = TestData.text(10_001, n);
+        Histogram histogram = new Histogram(n);
+        histogram.add(text, 0, text.length);
+        long[] keys = new long[histogram.size()];
+        long[] counts = new long[keys.length];
+        histogram.copyTo(keys, counts);
+        int[] lengths = HuffmanTable.codeLengths(counts);
+        long[] codes = new long[keys.length];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = i * 0x9E3779B97F4A7C15L >>> (64 - lengths[i]);
+        }
+        EncodeTable encodeTable = new EncodeTable(n, keys, codes, lengths);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        BitWriter expectedWriter = new BitWriter(expected);
+        long bits = 0;
+        for (int offset = 0; offset < text.length; offset += n) {
+            long key = SymbolKey.pack(text, offset, n, text.length);
+            int symbol = indexOf(keys, key);
+            expectedWriter.write(codes[symbol], lengths[symbol]);
+            bits += lengths[symbol];
+            assertEquals(lengths[symbol], encodeTable.length(key));
+        }
+        expectedWriter.flush();
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        BitWriter writer = new BitWriter(actual);
+        encodeTable.encode(text, 0, text.length, writer);
+        assertEquals(bits, writer.bitsWritten());
+        writer.flush();
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    private static int indexOf(long[] keys, long key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        throw new AssertionError("Symbol is not in the table");
+    }
+}
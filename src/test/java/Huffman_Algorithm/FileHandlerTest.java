@@ -0,0 +1,371 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static Huffman_Algorithm.TestData.text;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compresses files in every format, checks the format byte and that decompress gives back the original bytes.
+ * The edge cases are an empty file, a single symbol and more bytes per symbol than the file has, each in every mode
+ * that handles them differently.
+ */
+class FileHandlerTest {
+    @TempDir
+    Path directory;
+
+    private final FileHandler fileHandler = new FileHandler();
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    void explicitTable(int n) throws IOException {
+        Path input = write("text.txt", text(100_000, 1));
+        fileHandler.compress(input.toString(), n, false);
+        assertRoundTrip(input, n, FileHandler.EXPLICIT_TABLE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void canonicalTable(int n) throws IOException {
+        Path input = write("text.txt", text(100_000, 1));
+        fileHandler.compress(input.toString(), n);
+        assertRoundTrip(input, n, FileHandler.CANONICAL_TABLE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void blocks(int n) throws IOException {
+        // the last block is shorter than the others
+        Path input = write("text.txt", text(300_001, 1));
+        fileHandler.compressBlocks(input.toString(), n, 64 * 1024);
+        assertRoundTrip(input, n, FileHandler.BLOCKS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void smallWindows(int n) throws IOException {
+        // symbols and codes cross the window ends
+        Path input = write("text.txt", text(100_001, 1));
+        fileHandler.setWindowSize(13);
+        String path = input.toString();
+        assertRoundTrip(input, n, () -> fileHandler.compress(path, n));
+        assertRoundTrip(input, n, () -> fileHandler.compressBlocks(path, n, 4096));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void stored(int n) throws IOException {
+        Path input = write("data.bin", TestData.random(100_000));
+        fileHandler.compress(input.toString(), n);
+        assertRoundTrip(input, n, FileHandler.STORED);
+        assertTrue(Files.size(compressed(input, n)) < 100_100);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void blocksWithStoredBlocks(int n) throws IOException {
+        // the second and third block are random, the last one is partly random
+        byte[] data = text(300_001, 1);
+        System.arraycopy(TestData.random(100_000), 0, data, 64 * 1024, 100_000);
+        System.arraycopy(TestData.random(40_000), 0, data, 260_001, 40_000);
+        Path input = write("text.txt", data);
+        fileHandler.compressBlocks(input.toString(), n, 64 * 1024);
+        assertRoundTrip(input, n, FileHandler.BLOCKS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void stream(int n) throws IOException {
+        // the blocks of random bytes in the middle are stored
+        byte[] data = text(300_001, 1);
+        System.arraycopy(TestData.random(150_000), 0, data, 100_000, 150_000);
+        Path compressed = directory.resolve("20010888." + n + ".text.txt.hc");
+        try (OutputStream outputStream = new HuffmanOutputStream(Files.newOutputStream(compressed), n, 64 * 1024)) {
+            // in pieces that do not end on symbols
+            for (int offset = 0; offset < data.length; offset += 9999) {
+                outputStream.write(data, offset, Math.min(9999, data.length - offset));
+            }
+        }
+        fileHandler.decompress(compressed.toString());
+        assertEquals(FileHandler.STREAM, Files.readAllBytes(compressed)[0]);
+        assertArrayEquals(data, Files.readAllBytes(directory.resolve("extracted.20010888." + n + ".text.txt")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void adaptive(int n) throws IOException {
+        Path input = write("text.txt", text(300_001, 1));
+        fileHandler.compressAdaptive(input.toString(), n, 8 * 1024);
+        assertRoundTrip(input, n, FileHandler.ADAPTIVE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void indexed(int n) throws IOException {
+        // the last sync interval is shorter than the others
+        Path input = write("text.txt", text(300_001, 1));
+        fileHandler.setSyncInterval(1000);
+        fileHandler.compress(input.toString(), n);
+        assertRoundTrip(input, n, FileHandler.INDEXED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void interleavedBlocks(int n) throws IOException {
+        Path input = write("text.txt", text(300_001, 1));
+        fileHandler.setInterleaved(true);
+        fileHandler.compressBlocks(input.toString(), n, 64 * 1024);
+        assertRoundTrip(input, n, FileHandler.INTERLEAVED_BLOCKS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void transformedBlocks(int n) throws IOException {
+        // text for the Burrows-Wheeler transform, a long run for run-length coding and random bytes for none
+        byte[] data = text(600_001, 1);
+        Arrays.fill(data, 200_000, 300_000, (byte) ' ');
+        System.arraycopy(TestData.random(100_000), 0, data, 400_000, 100_000);
+        Path input = write("text.txt", data);
+        fileHandler.setTransform(true);
+        fileHandler.compressBlocks(input.toString(), n, 100_000);
+        assertRoundTrip(input, n, FileHandler.TRANSFORMED_BLOCKS);
+
+        fileHandler.setInterleaved(true);
+        fileHandler.compress(input.toString(), n);
+        assertRoundTrip(input, n, FileHandler.TRANSFORMED_BLOCKS);
+        assertEquals(FileHandler.INTERLEAVED_BLOCKS, Files.readAllBytes(compressed(input, n))[1]);
+    }
+
+    @Test
+    void blocksRejectSettingsTheyWouldDrop() throws IOException {
+        Path input = write("text.txt", text(1000, 1));
+        Path sample = write("sample.txt", text(10_000, 2));
+        String dictionary = fileHandler.trainDictionary(directory.toString(), 1, sample.toString());
+        fileHandler.setInterleaved(true);
+        assertThrows(IllegalArgumentException.class, () -> fileHandler.compress(input.toString(), 1, false));
+        assertThrows(IllegalArgumentException.class, () -> fileHandler.compressAuto(input.toString(), false));
+        fileHandler.setInterleaved(false);
+        fileHandler.setTransform(true);
+        assertThrows(IllegalArgumentException.class, () -> fileHandler.compress(input.toString(), 1, false));
+
+        fileHandler.setDictionary(dictionary);
+        assertThrows(IllegalArgumentException.class, () -> fileHandler.compress(input.toString(), 1));
+        assertThrows(IllegalArgumentException.class, () -> fileHandler.compressAuto(input.toString(), true));
+        fileHandler.setDictionary((String) null);
+        fileHandler.setSampleSize(1024);
+        assertThrows(IllegalArgumentException.class, () -> fileHandler.compress(input.toString(), 1));
+        fileHandler.setSampleSize(0);
+        fileHandler.setSyncInterval(100);
+        assertThrows(IllegalArgumentException.class, () -> fileHandler.compressBlocks(input.toString(), 1, 4096));
+        assertTrue(Files.notExists(compressed(input, 1)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void dictionary(int n) throws IOException {
+        Path sample = write("sample.txt", text(100_000, 1));
+        Path input = write("text.txt", text(100_000, 2));
+        String dictionary = fileHandler.trainDictionary(directory.toString(), n, sample.toString());
+        fileHandler.setDictionary(dictionary);
+        fileHandler.compress(input.toString(), n);
+        assertNull(fileHandler.getDictionaryFallback());
+        assertRoundTrip(input, n, FileHandler.DICTIONARY_TABLE);
+    }
+
+    @Test
+    void dictionaryFallback() throws IOException {
+        // 3 byte symbols of random data are not in a dictionary trained on text
+        Path sample = write("sample.txt", text(100_000, 1));
+        Path input = write("data.bin", TestData.random(30_000));
+        fileHandler.setDictionary(fileHandler.trainDictionary(directory.toString(), 3, sample.toString()));
+        fileHandler.compress(input.toString(), 3);
+        assertNotNull(fileHandler.getDictionaryFallback());
+        assertRoundTrip(input, 3, FileHandler.STORED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void sampled(int n) throws IOException {
+        // symbols the sample misses are escaped
+        byte[] data = text(300_001, 1);
+        data[123_457] = (byte) 0xFF;
+        Path input = write("text.txt", data);
+        fileHandler.setSampleSize(16 * 1024);
+        fileHandler.compress(input.toString(), n);
+        assertRoundTrip(input, n, FileHandler.SAMPLED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void archive(int n) throws IOException {
+        Path files = Files.createDirectories(directory.resolve("files").resolve("sub"));
+        byte[][] contents = {text(100_000, 1), text(7, 2), new byte[0], TestData.random(50_000)};
+        for (int i = 0; i < contents.length; i++) {
+            Files.write(files.resolve("file" + i), contents[i]);
+        }
+        fileHandler.compressBatch(files.getParent().toString(), n, false, true, 2);
+        Path compressed = compressed(files.getParent(), n);
+        assertEquals(FileHandler.ARCHIVE, Files.readAllBytes(compressed)[0]);
+
+        fileHandler.decompress(compressed.toString());
+        Path extracted = directory.resolve("extracted.20010888." + n + ".files").resolve("sub");
+        for (int i = 0; i < contents.length; i++) {
+            assertArrayEquals(contents[i], Files.readAllBytes(extracted.resolve("file" + i)), "file" + i);
+        }
+    }
+
+    @Test
+    void list() throws IOException {
+        Path first = write("first.txt", text(100_000, 1));
+        Path second = write("second.txt", text(1000, 2));
+        Path list = Files.write(directory.resolve("files.txt"), List.of(first.toString(), second.toString()));
+        fileHandler.compressBatch(list.toString(), 2, true, false, 2);
+        assertRoundTrip(first, 2);
+        assertRoundTrip(second, 2);
+    }
+
+    @Test
+    void autoNumberOfBytes() throws IOException {
+        // 4 byte words out of 16: 4 bits per 4 bytes, while their halves and bytes are closer to random
+        byte[] words = TestData.random(64);
+        Random random = new Random(1);
+        byte[] data = new byte[400_000];
+        for (int i = 0; i < data.length; i += 4) {
+            System.arraycopy(words, 4 * random.nextInt(16), data, i, 4);
+        }
+        Path input = write("words.bin", data);
+        assertEquals(4, fileHandler.chooseNumberOfBytes(input.toString()));
+        assertEquals(4, fileHandler.compressAuto(input.toString(), true));
+        long[] estimatedSizes = fileHandler.getEstimatedSizes();
+        for (int n = 1; n < estimatedSizes.length; n++) {
+            assertTrue(estimatedSizes[n] == -1 || estimatedSizes[n] >= estimatedSizes[4], "n " + n);
+        }
+        assertRoundTrip(input, 4, FileHandler.CANONICAL_TABLE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 8})
+    void emptyFile(int n) throws IOException {
+        assertAllModesRoundTrip(new byte[0], n);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 8})
+    void singleSymbol(int n) throws IOException {
+        byte[] data = new byte[100_000];
+        Arrays.fill(data, (byte) 'a');
+        assertAllModesRoundTrip(data, n);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 8})
+    void singleByte(int n) throws IOException {
+        assertAllModesRoundTrip(new byte[]{'a'}, n);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 8})
+    void moreBytesPerSymbolThanTheFile(int n) throws IOException {
+        assertAllModesRoundTrip(Arrays.copyOf("ab".getBytes(StandardCharsets.US_ASCII), n - 1), n);
+    }
+
+    @Test
+    void lastSymbolIsPartial() throws IOException {
+        assertAllModesRoundTrip(text(10_005, 1), 8);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void maxCodeLengthOfOneBit(int n) throws IOException {
+        // two symbols fit in 1 bit codes, for more the limit is raised
+        byte[] twoSymbols = new byte[20_000];
+        Random random = new Random(n);
+        for (int i = 0; i < twoSymbols.length; i++) {
+            twoSymbols[i] = (byte) (random.nextInt(8) == 0 ? 'b' : 'a');
+        }
+        fileHandler.setMaxCodeLength(1);
+        assertAllModesRoundTrip(twoSymbols, n);
+        assertAllModesRoundTrip(text(20_000, 1), n);
+    }
+
+    // compresses the data in every mode that codes it differently and decompresses it again
+    private void assertAllModesRoundTrip(byte[] data, int n) throws IOException {
+        Path input = write("data.bin", data);
+        String path = input.toString();
+        assertRoundTrip(input, n, () -> fileHandler.compress(path, n, false));
+        assertRoundTrip(input, n, () -> fileHandler.compress(path, n));
+        assertRoundTrip(input, n, () -> fileHandler.compressBlocks(path, n, 4096));
+        assertRoundTrip(input, n, () -> fileHandler.compressAdaptive(path, n, 4096));
+
+        fileHandler.setSyncInterval(100);
+        assertRoundTrip(input, n, () -> fileHandler.compress(path, n));
+        fileHandler.setSyncInterval(0);
+
+        fileHandler.setInterleaved(true);
+        assertRoundTrip(input, n, () -> fileHandler.compressBlocks(path, n, 4096));
+        fileHandler.setInterleaved(false);
+
+        fileHandler.setTransform(true);
+        assertRoundTrip(input, n, () -> fileHandler.compressBlocks(path, n, 4096));
+        fileHandler.setTransform(false);
+
+        fileHandler.setSampleSize(1024);
+        assertRoundTrip(input, n, () -> fileHandler.compress(path, n));
+        fileHandler.setSampleSize(0);
+
+        Path compressed = directory.resolve("20010888." + n + ".stream.hc");
+        try (OutputStream outputStream = new HuffmanOutputStream(Files.newOutputStream(compressed), n, 4096)) {
+            outputStream.write(data);
+        }
+        try (InputStream inputStream = new HuffmanInputStream(Files.newInputStream(compressed))) {
+            assertArrayEquals(data, inputStream.readAllBytes(), "stream");
+        }
+    }
+
+    // the compressed file of an earlier mode is deleted first, compress prints its errors instead of throwing them
+    private void assertRoundTrip(Path input, int n, Runnable compress) throws IOException {
+        Files.deleteIfExists(compressed(input, n));
+        compress.run();
+        assertRoundTrip(input, n);
+    }
+
+    private void assertRoundTrip(Path input, int n, int format) throws IOException {
+        assertEquals(format, Files.readAllBytes(compressed(input, n))[0], "format");
+        assertRoundTrip(input, n);
+    }
+
+    private void assertRoundTrip(Path input, int n) throws IOException {
+        Path compressed = compressed(input, n);
+        Path extracted = directory.resolve("extracted.20010888." + n + "." + input.getFileName());
+        Files.deleteIfExists(extracted);
+        fileHandler.decompress(compressed.toString());
+        assertArrayEquals(Files.readAllBytes(input), Files.readAllBytes(extracted),
+                "format " + Files.readAllBytes(compressed)[0]);
+    }
+
+    private Path compressed(Path input, int n) {
+        return input.resolveSibling("20010888." + n + "." + input.getFileName() + ".hc");
+    }
+
+    private Path write(String name, byte[] data) throws IOException {
+        return Files.write(directory.resolve(name), data);
+    }
+}
@@ -0,0 +1,55 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the counts of Histogram with symbols counted one at a time in a map, on inputs small enough to skip the
+ * lanes and large enough to use them, with runs of one symbol and a partial last symbol.
+ */
+class HistogramTest {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void counts(int n) {
+        byte[] runs = new byte[300_001];
+        Arrays.fill(runs, 100_000, 200_000, (byte) 'a');
+        System.arraycopy(TestData.random(50_000), 0, runs, 200_000, 50_000);
+        for (byte[] input : new byte[][]{TestData.text(1001, 1), TestData.text(300_001, 1), runs}) {
+            Histogram histogram = new Histogram(n);
+            histogram.add(input, 0, input.length);
+            assertCounts(count(input, 0, input.length, n), histogram);
+
+            // a direct buffer from an unaligned offset, added to the counts above
+            ByteBuffer buffer = ByteBuffer.allocateDirect(input.length);
+            buffer.put(input).flip();
+            histogram.add(buffer, 3, input.length);
+            Map<Long, Long> expected = count(input, 0, input.length, n);
+            count(input, 3, input.length, n).forEach((key, count) -> expected.merge(key, count, Long::sum));
+            assertCounts(expected, histogram);
+        }
+    }
+
+    static void assertCounts(Map<Long, Long> expected, Histogram histogram) {
+        long[] keys = new long[histogram.size()];
+        long[] counts = new long[keys.length];
+        assertEquals(expected.size(), histogram.copyTo(keys, counts));
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(expected.get(keys[i]), counts[i], "symbol " + Long.toHexString(keys[i]));
+        }
+    }
+
+    static Map<Long, Long> count(byte[] input, int offset, int limit, int numberOfBytes) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (int i = offset; i < limit; i += numberOfBytes) {
+            counts.merge(SymbolKey.pack(input, i, numberOfBytes, limit), 1L, Long::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,72 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compresses and decompresses different files with one codec from several threads at once, each call with its own
+ * number of bytes per symbol, and reads them through the codec.
+ */
+class HuffmanCodecTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentBlocks() {
+        // the decoding buffers of the interleaved blocks come from the shared pool
+        HuffmanCodec codec = HuffmanCodec.builder().interleaved(true).bufferPoolBytes(1024 * 1024).build();
+        assertConcurrentRoundTrips(codec, false);
+    }
+
+    @Test
+    void concurrentDictionary() throws IOException {
+        Path sample = Files.write(directory.resolve("sample.txt"), TestData.text(100_000, 100));
+        String dictionary = new FileHandler().trainDictionary(directory.toString(), 2, sample.toString());
+        HuffmanCodec codec = HuffmanCodec.builder().dictionary(dictionary)
+                .dictionaryDirectory(directory.toString()).build();
+        assertConcurrentRoundTrips(codec, true);
+    }
+
+    @Test
+    void rejectsSettingsBlocksWouldDrop() throws IOException {
+        Path sample = Files.write(directory.resolve("sample.txt"), TestData.text(10_000, 100));
+        String dictionary = new FileHandler().trainDictionary(directory.toString(), 1, sample.toString());
+        HuffmanCodec codec = HuffmanCodec.builder().transform(true).dictionary(dictionary).build();
+        String input = Files.write(directory.resolve("text.txt"), TestData.text(1000, 1)).toString();
+        assertThrows(IllegalArgumentException.class, () -> codec.compress(input, 1));
+        assertThrows(IllegalArgumentException.class, () -> codec.compressAuto(input, true));
+    }
+
+    private void assertConcurrentRoundTrips(HuffmanCodec codec, boolean sameNumberOfBytes) {
+        IntStream.range(0, 8).parallel().forEach(i -> {
+            int n = sameNumberOfBytes ? 2 : 1 + i % 3;
+            try {
+                byte[] data = TestData.text(200_001, i);
+                Path input = Files.write(directory.resolve("text" + i + ".txt"), data);
+                codec.compress(input.toString(), n);
+                Path compressed = directory.resolve("20010888." + n + "." + input.getFileName() + ".hc");
+                codec.decompress(compressed.toString());
+                assertArrayEquals(data,
+                        Files.readAllBytes(directory.resolve("extracted.20010888." + n + "." + input.getFileName())),
+                        "file " + i);
+                try (HuffmanFileReader reader = codec.openReader(compressed.toString())) {
+                    assertEquals(data.length, reader.size());
+                    assertArrayEquals(Arrays.copyOfRange(data, 99_999, 150_000), reader.read(99_999, 50_001));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,164 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Reads random ranges of every format that can be read at an offset and compares them with the original file,
+ * from several threads at once.
+ */
+class HuffmanFileReaderTest {
+    @TempDir
+    Path directory;
+
+    private final FileHandler fileHandler = new FileHandler();
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void canonicalTable(int n) throws IOException {
+        Path input = write(TestData.text(100_001, 1));
+        fileHandler.compress(input.toString(), n);
+        assertReads(input, n, FileHandler.CANONICAL_TABLE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void syncPoints(int n) throws IOException {
+        Path input = write(TestData.text(300_001, 1));
+        fileHandler.setSyncInterval(1000);
+        fileHandler.compress(input.toString(), n);
+        assertReads(input, n, FileHandler.INDEXED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void blocks(int n) throws IOException {
+        Path input = write(TestData.text(300_001, 1));
+        fileHandler.compressBlocks(input.toString(), n, 16 * 1024);
+        assertReads(input, n, FileHandler.BLOCKS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void interleavedBlocks(int n) throws IOException {
+        Path input = write(TestData.text(300_001, 1));
+        fileHandler.setInterleaved(true);
+        fileHandler.compressBlocks(input.toString(), n, 16 * 1024);
+        assertReads(input, n, FileHandler.INTERLEAVED_BLOCKS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void stored(int n) throws IOException {
+        Path input = write(TestData.random(100_001));
+        fileHandler.compress(input.toString(), n);
+        assertReads(input, n, FileHandler.STORED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void blocksWithStoredBlocks(int n) throws IOException {
+        // every other block of 16 KB is random
+        byte[] data = TestData.text(300_001, 1);
+        byte[] random = TestData.random(data.length);
+        for (int offset = 0; offset < data.length; offset += 32 * 1024) {
+            System.arraycopy(random, offset, data, offset, Math.min(16 * 1024, data.length - offset));
+        }
+        Path input = write(data);
+        fileHandler.compressBlocks(input.toString(), n, 16 * 1024);
+        assertReads(input, n, FileHandler.BLOCKS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void transformedBlocks(int n) throws IOException {
+        Path input = write(TestData.text(300_001, 1));
+        fileHandler.setTransform(true);
+        fileHandler.compressBlocks(input.toString(), n, 16 * 1024);
+        assertReads(input, n, FileHandler.TRANSFORMED_BLOCKS);
+    }
+
+    @Test
+    void dictionary() throws IOException {
+        Path sample = Files.write(directory.resolve("sample.txt"), TestData.text(100_000, 1));
+        fileHandler.setDictionary(fileHandler.trainDictionary(directory.toString(), 2, sample.toString()));
+        Path input = write(TestData.text(100_001, 2));
+        fileHandler.compress(input.toString(), 2);
+        assertReads(input, 2, FileHandler.DICTIONARY_TABLE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void sampled(int n) throws IOException {
+        byte[] data = TestData.text(300_001, 1);
+        data[123_457] = (byte) 0xFF;
+        Path input = write(data);
+        fileHandler.setSampleSize(16 * 1024);
+        fileHandler.compress(input.toString(), n);
+        assertReads(input, n, FileHandler.SAMPLED);
+    }
+
+    @Test
+    void rangeOutsideTheFile() throws IOException {
+        Path input = write(TestData.text(1000, 1));
+        fileHandler.compress(input.toString(), 1);
+        try (HuffmanFileReader reader = new HuffmanFileReader(compressed(input, 1).toString())) {
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.read(-1, 1));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.read(990, 11));
+            assertEquals(0, reader.read(1000, 0).length);
+        }
+    }
+
+    @Test
+    void formatWithoutOffsets() throws IOException {
+        Path input = write(TestData.text(1000, 1));
+        fileHandler.compressAdaptive(input.toString(), 1, 4096);
+        assertThrows(IOException.class, () -> new HuffmanFileReader(compressed(input, 1).toString()).close());
+    }
+
+    // reads random ranges, ranges around the block and sync point ends, and the whole file
+    private void assertReads(Path input, int n, int format) throws IOException {
+        byte[] data = Files.readAllBytes(input);
+        Path compressed = compressed(input, n);
+        assertEquals(format, Files.readAllBytes(compressed)[0], "format");
+        try (HuffmanFileReader reader = new HuffmanFileReader(compressed.toString())) {
+            assertEquals(data.length, reader.size());
+            assertArrayEquals(data, reader.read(0, data.length));
+            assertArrayEquals(Arrays.copyOfRange(data, data.length - 1, data.length), reader.read(data.length - 1, 1));
+            IntStream.range(0, 200).parallel().forEach(i -> {
+                Random random = new Random(i);
+                // every other range starts next to the end of a sync interval of 1000 symbols or of a 16 KB block
+                long boundary = (i % 4 == 1 ? 1000L * n : 16 * 1024) * (i / 4 + 1) - random.nextInt(2 * n + 1);
+                int offset = i % 2 == 0 ? random.nextInt(data.length) : (int) Math.min(data.length - 1, boundary);
+                int length = random.nextInt(Math.min(40_000, data.length - offset) + 1);
+                try {
+                    assertArrayEquals(Arrays.copyOfRange(data, offset, offset + length), reader.read(offset, length),
+                            "range " + offset + " + " + length);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+        }
+    }
+
+    private Path write(byte[] data) throws IOException {
+        return Files.write(directory.resolve("text.txt"), data);
+    }
+
+    private static Path compressed(Path input, int n) {
+        return input.resolveSibling("20010888." + n + "." + input.getFileName() + ".hc");
+    }
+}
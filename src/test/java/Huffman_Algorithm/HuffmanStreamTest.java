@@ -0,0 +1,149 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * HuffmanOutputStream and HuffmanInputStream, directly and through HuffmanChannels, and the adaptive streams.
+ */
+class HuffmanStreamTest {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void flushInTheMiddleOfASymbol(int n) throws IOException {
+        byte[] data = TestData.text(10_001, n);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        HuffmanOutputStream outputStream = new HuffmanOutputStream(compressed, n, 4096);
+        ByteArrayOutputStream flushed = new ByteArrayOutputStream();
+        for (int offset = 0; offset < data.length; offset += 1001) {
+            outputStream.write(data, offset, Math.min(1001, data.length - offset));
+            outputStream.flush();
+            // a flushed block can be read before the stream ends, the partial symbol waits for the next write
+            flushed.write(compressed.toByteArray());
+            compressed.reset();
+        }
+        outputStream.close();
+        flushed.write(compressed.toByteArray());
+
+        try (InputStream inputStream = new HuffmanInputStream(new ByteArrayInputStream(flushed.toByteArray()))) {
+            assertArrayEquals(data, inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void adaptiveFlushIsReadableRightAway() throws IOException {
+        PipedInputStream pipe = new PipedInputStream(1024 * 1024);
+        OutputStream outputStream = new AdaptiveHuffmanOutputStream(new PipedOutputStream(pipe), 2, 1000);
+        InputStream inputStream = new AdaptiveHuffmanInputStream(pipe);
+        byte[] data = TestData.text(50_000, 1);
+        for (int offset = 0; offset < data.length; offset += 5000) {
+            outputStream.write(data, offset, 5000);
+            outputStream.flush();
+            // the reader would block if it needed more than what was flushed
+            assertArrayEquals(Arrays.copyOfRange(data, offset, offset + 5000), inputStream.readNBytes(5000));
+        }
+        outputStream.close();
+        assertEquals(-1, inputStream.read());
+    }
+
+    @Test
+    void skip() throws IOException {
+        byte[] data = TestData.text(100_000, 1);
+        try (InputStream inputStream = new HuffmanInputStream(new ByteArrayInputStream(compress(data, 2)))) {
+            assertEquals(50_000, inputStream.skip(50_000));
+            assertEquals(data[50_000] & 0xFF, inputStream.read());
+            assertArrayEquals(Arrays.copyOfRange(data, 50_001, data.length), inputStream.readAllBytes());
+            assertEquals(0, inputStream.skip(1));
+        }
+    }
+
+    @Test
+    void channels() throws IOException {
+        byte[] data = TestData.text(100_000, 1);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        WritableByteChannel target = Channels.newChannel(compressed);
+        try (WritableByteChannel channel = HuffmanChannels.newWritableChannel(target, 2, 4096)) {
+            channel.write(ByteBuffer.wrap(data));
+        }
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (ReadableByteChannel channel = HuffmanChannels.newReadableChannel(
+                Channels.newChannel(new ByteArrayInputStream(compressed.toByteArray())))) {
+            ByteBuffer buffer = ByteBuffer.allocate(1000);
+            while (channel.read(buffer) >= 0) {
+                decompressed.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+        assertArrayEquals(data, decompressed.toByteArray());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void randomBlocksAreStored(int n) throws IOException {
+        byte[] data = TestData.random(100_000);
+        byte[] compressed = compress(data, n);
+        // the format byte, the number of bytes per symbol and the length of every block and of the end frame
+        int blocks = (data.length + 4095) / (4096 - 4096 % n);
+        assertEquals(2 + data.length + 4 * (blocks + 1), compressed.length);
+        try (InputStream inputStream = new HuffmanInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(data, inputStream.readAllBytes());
+        }
+
+        // stored and coded blocks in turns
+        byte[] mixed = TestData.text(100_000, 1);
+        for (int offset = 0; offset < mixed.length; offset += 8192) {
+            System.arraycopy(data, offset, mixed, offset, Math.min(4096, mixed.length - offset));
+        }
+        try (InputStream inputStream = new HuffmanInputStream(new ByteArrayInputStream(compress(mixed, n)))) {
+            assertArrayEquals(mixed, inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void truncatedStoredBlock() throws IOException {
+        byte[] compressed = compress(TestData.random(10_000), 1);
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length - 10);
+        assertThrows(EOFException.class,
+                () -> new HuffmanInputStream(new ByteArrayInputStream(truncated)).readAllBytes());
+    }
+
+    @Test
+    void notAStream() {
+        byte[] blocks = {FileHandler.BLOCKS, 1, 0, 0, 0, 0};
+        assertThrows(IOException.class, () -> new HuffmanInputStream(new ByteArrayInputStream(blocks)).read());
+    }
+
+    @Test
+    void truncated() throws IOException {
+        byte[] compressed = compress(TestData.text(10_000, 1), 1);
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length - 10);
+        assertThrows(EOFException.class,
+                () -> new HuffmanInputStream(new ByteArrayInputStream(truncated)).readAllBytes());
+    }
+
+    private static byte[] compress(byte[] data, int n) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (HuffmanOutputStream outputStream = new HuffmanOutputStream(compressed, n, 4096)) {
+            outputStream.write(data);
+        }
+        return compressed.toByteArray();
+    }
+}
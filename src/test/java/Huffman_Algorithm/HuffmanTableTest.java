@@ -0,0 +1,140 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Optimal and length-limited code lengths, the canonical order of the table and the length-only table header.
+ */
+class HuffmanTableTest {
+    @Test
+    void sortedByLengthThenSymbol() {
+        HuffmanTable table = HuffmanTable.fromLengths(1, new long[]{'d', 'c', 'b', 'a'}, new int[]{3, 1, 3, 2});
+        assertArrayEquals(new long[]{'c', 'a', 'b', 'd'}, table.keys);
+        assertArrayEquals(new int[]{1, 2, 3, 3}, table.lengths);
+    }
+
+    @Test
+    void codeLengthsAreOptimal() {
+        Random random = new Random(1);
+        for (int size = 1; size <= 300; size++) {
+            long[] counts = new long[size];
+            for (int i = 0; i < size; i++) {
+                // many ties, and counts that need most bytes of the radix sort while their sum still fits a long
+                long count = size % 3 == 0 ? random.nextInt(4) : random.nextLong() >>> (10 + random.nextInt(40));
+                counts[i] = 1 + count;
+            }
+            int[] lengths = HuffmanTable.codeLengths(counts, HuffmanTable.MAX_CODE_LENGTH);
+            BigInteger cost = BigInteger.ZERO;
+            for (int i = 0; i < size; i++) {
+                cost = cost.add(BigInteger.valueOf(counts[i]).multiply(BigInteger.valueOf(lengths[i])));
+            }
+            assertEquals(huffmanCost(counts), cost, "size " + size);
+            if (size > 1) {
+                assertEquals(BigInteger.ONE.shiftLeft(64), kraftSum(lengths, 64), "size " + size);
+            }
+        }
+    }
+
+    @Test
+    void limitedLengthsKeepTheCodeComplete() {
+        // Fibonacci counts give a code of lengths 1, 2, ..., 89, 89 without a limit
+        long[] counts = new long[90];
+        counts[0] = 1;
+        counts[1] = 1;
+        for (int i = 2; i < counts.length; i++) {
+            counts[i] = counts[i - 1] + counts[i - 2];
+        }
+        for (int maxCodeLength = 1; maxCodeLength <= HuffmanTable.MAX_CODE_LENGTH; maxCodeLength++) {
+            int[] lengths = HuffmanTable.codeLengths(counts, maxCodeLength);
+            // 90 symbols need at least 7 bits
+            int limit = Math.max(maxCodeLength, 7);
+            assertEquals(BigInteger.ONE.shiftLeft(limit), kraftSum(lengths, limit), "limit " + maxCodeLength);
+            for (int i = 1; i < lengths.length; i++) {
+                assertTrue(lengths[i] <= limit && lengths[i] <= lengths[i - 1], "limit " + maxCodeLength);
+            }
+        }
+    }
+
+    @Test
+    void lengthsWithinTheLimitAreKept() {
+        int[] lengths = {1, 2, 3, 3};
+        assertSame(lengths, HuffmanTable.limitLengths(lengths, 3));
+    }
+
+    @Test
+    void limitIsRaisedForMoreSymbols() {
+        int[] lengths = new int[256];
+        Arrays.fill(lengths, 8);
+        assertArrayEquals(lengths, HuffmanTable.limitLengths(lengths, 1));
+    }
+
+    @Test
+    void invalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> HuffmanTable.limitLengths(new int[]{1, 1}, 0));
+        assertThrows(IllegalArgumentException.class, () -> HuffmanTable.limitLengths(new int[]{1, 1}, 65));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8})
+    void headerRoundTrip(int n) throws IOException {
+        Histogram histogram = new Histogram(n);
+        byte[] text = TestData.text(10_000, n);
+        histogram.add(text, 0, text.length);
+        HuffmanTable table = HuffmanTable.build(histogram);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        table.write(header);
+        assertEquals(table.headerSize(), header.size());
+        HuffmanTable read = HuffmanTable.read(new ByteArrayInputStream(header.toByteArray()), n);
+        assertArrayEquals(table.keys, read.keys);
+        assertArrayEquals(table.lengths, read.lengths);
+        assertArrayEquals(table.codes, read.codes);
+
+        byte[] truncated = Arrays.copyOf(header.toByteArray(), header.size() - 1);
+        assertThrows(EOFException.class, () -> HuffmanTable.read(new ByteArrayInputStream(truncated), n));
+    }
+
+    // cost of the code built by merging the two smallest nodes from a priority queue, a single symbol costs 1 bit
+    private static BigInteger huffmanCost(long[] counts) {
+        if (counts.length == 1) {
+            return BigInteger.valueOf(counts[0]);
+        }
+        PriorityQueue<BigInteger> queue = new PriorityQueue<>();
+        for (long count : counts) {
+            queue.add(BigInteger.valueOf(count));
+        }
+        BigInteger cost = BigInteger.ZERO;
+        while (queue.size() > 1) {
+            BigInteger merged = queue.poll().add(queue.poll());
+            cost = cost.add(merged);
+            queue.add(merged);
+        }
+        return cost;
+    }
+
+    // sum of 2^(limit - length), 2^limit for a complete code
+    private static BigInteger kraftSum(int[] lengths, int limit) {
+        BigInteger sum = BigInteger.ZERO;
+        for (int length : lengths) {
+            sum = sum.add(BigInteger.ONE.shiftLeft(limit - length));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,82 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Reads a region of a file in windows, on the calling thread and through the I/O thread, and checks that a
+ * failure of the I/O thread reaches the caller instead of leaving it waiting.
+ */
+class ReadAheadTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void windowsInOrder() throws IOException {
+        byte[] data = TestData.text(100_001, 1);
+        Path file = Files.write(directory.resolve("text.txt"), data);
+        try (FileChannel channel = FileChannel.open(file)) {
+            for (int buffers : new int[]{1, 2, 4}) {
+                try (ReadAhead readAhead = new ReadAhead(channel, 3, data.length, 4096, buffers)) {
+                    assertArrayEquals(Arrays.copyOfRange(data, 3, data.length), readAll(readAhead),
+                            buffers + " buffers");
+                    // the end is seen again
+                    assertNull(readAhead.next());
+                }
+            }
+        }
+    }
+
+    @Test
+    void failureOfTheIoThread() throws IOException {
+        // the windows past the end of the file cannot be mapped from a read only channel
+        byte[] data = TestData.text(10_000, 1);
+        Path file = Files.write(directory.resolve("text.txt"), data);
+        try (FileChannel channel = FileChannel.open(file);
+             ReadAhead readAhead = new ReadAhead(channel, 0, 100_000, 4096, 3)) {
+            ByteBuffer window = readAhead.next();
+            assertNotNull(window);
+            assertEquals(4096, window.remaining());
+            IOException failure = assertThrows(IOException.class, () -> readAll(readAhead));
+            assertNotNull(failure.getCause());
+            // and again on the next call
+            assertThrows(IOException.class, readAhead::next);
+        }
+    }
+
+    @Test
+    void closeBeforeTheEnd() throws IOException {
+        byte[] data = TestData.text(100_000, 1);
+        Path file = Files.write(directory.resolve("text.txt"), data);
+        try (FileChannel channel = FileChannel.open(file)) {
+            // the I/O thread waits for room in the queue and stops on close
+            ReadAhead readAhead = new ReadAhead(channel, 0, data.length, 1024, 2);
+            assertNotNull(readAhead.next());
+            readAhead.close();
+        }
+    }
+
+    private static byte[] readAll(ReadAhead readAhead) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (ByteBuffer window = readAhead.next(); window != null; window = readAhead.next()) {
+            byte[] b = new byte[window.remaining()];
+            window.get(b);
+            bytes.write(b);
+        }
+        return bytes.toByteArray();
+    }
+}
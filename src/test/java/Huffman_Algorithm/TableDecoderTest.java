@@ -0,0 +1,217 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Decodes symbols coded with canonical codes of known lengths: codes that fit the 11 bit primary table, codes that
+ * go through one or more sub-tables, four interleaved streams, escaped symbols, partial last symbols and bits that
+ * are not a code.
+ */
+class TableDecoderTest {
+    @Test
+    void primaryTable() throws IOException {
+        assertDecodes(1, new int[]{2, 2, 3, 3, 3, 4, 4}, 10_000);
+    }
+
+    @Test
+    void fullPrimaryTable() throws IOException {
+        int[] lengths = new int[256];
+        Arrays.fill(lengths, 8);
+        Arrays.fill(lengths, 0, 2, 7);
+        Arrays.fill(lengths, 252, 256, 9);
+        assertDecodes(1, lengths, 10_000);
+    }
+
+    @Test
+    void oneBitPastThePrimaryTable() throws IOException {
+        // 4096 codes of 12 bits, every primary entry links to a 1 bit sub-table
+        int[] lengths = new int[4096];
+        Arrays.fill(lengths, 12);
+        assertDecodes(2, lengths, 10_000);
+    }
+
+    @Test
+    void nestedSubTables() throws IOException {
+        // lengths 1, 2, ..., 64, 64: the longest codes go through the primary table and seven sub-tables
+        int[] lengths = new int[65];
+        for (int i = 0; i < 64; i++) {
+            lengths[i] = i + 1;
+        }
+        lengths[64] = 64;
+        assertDecodes(1, lengths, 10_000);
+    }
+
+    @Test
+    void interleaved() throws IOException {
+        // primary table hits and sub-table codes mixed in the four streams, the last stream is shorter
+        int[] lengths = new int[65];
+        for (int i = 0; i < 64; i++) {
+            lengths[i] = i + 1;
+        }
+        lengths[64] = 64;
+        for (int numberOfBytes : new int[]{1, 3}) {
+            for (int symbolCount : new int[]{0, 1, 5, 10_003}) {
+                assertDecodesInterleaved(numberOfBytes, lengths, symbolCount);
+            }
+        }
+    }
+
+    @Test
+    void lastSymbolIsPartial() throws IOException {
+        int[] lengths = {1, 2, 3, 3};
+        byte[] symbols = symbols(2, lengths.length);
+        long[] codes = CanonicalCode.assignCodes(lengths);
+        byte[] input = encode(codes, lengths, new int[]{3, 0, 2});
+
+        byte[] output = new byte[6];
+        int length = new TableDecoder(2, symbols, codes, lengths).decode(new BitReader(input, 0, input.length),
+                output, 0, 3, 1);
+        assertEquals(5, length);
+        assertArrayEquals(new byte[]{3, 0, 0, 0, 2, 0}, output);
+    }
+
+    @Test
+    void tryDecodeIndexWaitsForTheWholeCode() throws IOException {
+        // a 20 bit code needs a sub-table, the bits arrive one byte at a time
+        int[] lengths = {1, 20, 20};
+        long[] codes = CanonicalCode.assignCodes(lengths);
+        byte[] input = encode(codes, lengths, new int[]{2, 0});
+        TableDecoder decoder = new TableDecoder(codes, lengths);
+        BitReader reader = new BitReader(new byte[0], 0, 0);
+        for (int i = 0; i < 2; i++) {
+            reader.bitBuffer |= (long) (input[i] & 0xFF) << reader.bitCount;
+            reader.bitCount += 8;
+            assertEquals(-1, decoder.tryDecodeIndex(reader));
+            assertEquals(8 * (i + 1), reader.bitCount);
+        }
+        reader.bitBuffer |= (long) (input[2] & 0xFF) << reader.bitCount;
+        reader.bitCount += 8;
+        assertEquals(2, decoder.tryDecodeIndex(reader));
+        assertEquals(0, decoder.tryDecodeIndex(reader));
+        assertEquals(3, reader.bitCount);
+    }
+
+    @Test
+    void escapedSymbols() throws IOException {
+        // symbol 2 is the escape code, followed by the 2 raw bytes of a symbol that has no code
+        int[] lengths = {1, 2, 2};
+        long[] codes = CanonicalCode.assignCodes(lengths);
+        byte[] symbols = {'a', 'a', 'b', 'b', 0, 0};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitWriter writer = new BitWriter(bytes);
+        writer.write(codes[0], lengths[0]);
+        writer.write(codes[2], lengths[2]);
+        writer.write('x', 8);
+        writer.write('y', 8);
+        writer.write(codes[1], lengths[1]);
+        // the last symbol is cut to 1 byte, its escape still carries 2
+        writer.write(codes[2], lengths[2]);
+        writer.write('z', 8);
+        writer.write(0, 8);
+        writer.flush();
+        byte[] input = bytes.toByteArray();
+
+        byte[] output = new byte[8];
+        int length = new TableDecoder(2, symbols, codes, lengths, 2).decode(new BitReader(input, 0, input.length),
+                output, 0, 4, 1);
+        assertEquals(7, length);
+        assertArrayEquals(new byte[]{'a', 'a', 'x', 'y', 'b', 'b', 'z', 0}, output);
+    }
+
+    @Test
+    void invalidCode() {
+        // the lengths leave 11 and 1111... unused
+        assertInvalid(new int[]{1, 2}, new byte[]{(byte) 0xFF});
+        assertInvalid(new int[]{1, 13, 13}, new byte[]{-1, -1, -1, -1});
+    }
+
+    private static void assertInvalid(int[] lengths, byte[] input) {
+        long[] codes = CanonicalCode.assignCodes(lengths);
+        TableDecoder decoder = new TableDecoder(1, symbols(1, lengths.length), codes, lengths);
+        assertThrows(IOException.class,
+                () -> decoder.decode(new BitReader(input, 0, input.length), new byte[1], 0, 1, 1));
+    }
+
+    // codes random symbols, shorter codes more often, and decodes them again
+    private static void assertDecodes(int numberOfBytes, int[] sortedLengths, int symbolCount) throws IOException {
+        long[] codes = CanonicalCode.assignCodes(sortedLengths);
+        byte[] symbols = symbols(numberOfBytes, sortedLengths.length);
+        int[] message = message(sortedLengths.length, symbolCount);
+        byte[] input = encode(codes, sortedLengths, message);
+
+        byte[] output = new byte[symbolCount * numberOfBytes];
+        int length = new TableDecoder(numberOfBytes, symbols, codes, sortedLengths)
+                .decode(new BitReader(input, 0, input.length), output, 0, symbolCount, numberOfBytes);
+        assertEquals(output.length, length);
+        assertMessage(symbols, numberOfBytes, message, output);
+    }
+
+    // the same with the message cut into four streams of segmentSymbols symbols, the last stream the rest
+    private static void assertDecodesInterleaved(int numberOfBytes, int[] sortedLengths, int symbolCount)
+            throws IOException {
+        long[] codes = CanonicalCode.assignCodes(sortedLengths);
+        byte[] symbols = symbols(numberOfBytes, sortedLengths.length);
+        int[] message = message(sortedLengths.length, symbolCount);
+        int segmentSymbols = (symbolCount + 3) / 4;
+        BitReader[] readers = new BitReader[4];
+        for (int stream = 0; stream < 4; stream++) {
+            int from = Math.min(symbolCount, stream * segmentSymbols);
+            int to = stream == 3 ? symbolCount : Math.min(symbolCount, from + segmentSymbols);
+            byte[] input = encode(codes, sortedLengths, Arrays.copyOfRange(message, from, to));
+            readers[stream] = new BitReader(input, 0, input.length);
+        }
+
+        byte[] output = new byte[symbolCount * numberOfBytes];
+        new TableDecoder(numberOfBytes, symbols, codes, sortedLengths)
+                .decodeInterleaved(readers, output, symbolCount, segmentSymbols);
+        assertMessage(symbols, numberOfBytes, message, output);
+    }
+
+    // every symbol at least once, then random symbols with shorter codes more often
+    private static int[] message(int symbolCount, int length) {
+        Random random = new Random(symbolCount);
+        int[] message = new int[length];
+        for (int i = 0; i < length; i++) {
+            int skew = 1 + Long.numberOfTrailingZeros(random.nextLong()) * 8;
+            message[i] = i < symbolCount ? i : Math.min(symbolCount - 1, random.nextInt(skew));
+        }
+        return message;
+    }
+
+    private static void assertMessage(byte[] symbols, int numberOfBytes, int[] message, byte[] output) {
+        for (int i = 0; i < message.length; i++) {
+            assertArrayEquals(Arrays.copyOfRange(symbols, message[i] * numberOfBytes, (message[i] + 1) * numberOfBytes),
+                    Arrays.copyOfRange(output, i * numberOfBytes, (i + 1) * numberOfBytes), "symbol " + i);
+        }
+    }
+
+    // symbol i is i in little endian order
+    private static byte[] symbols(int numberOfBytes, int count) {
+        byte[] symbols = new byte[numberOfBytes * count];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < numberOfBytes; j++) {
+                symbols[i * numberOfBytes + j] = (byte) (i >>> (8 * j));
+            }
+        }
+        return symbols;
+    }
+
+    private static byte[] encode(long[] codes, int[] lengths, int[] message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitWriter writer = new BitWriter(bytes);
+        for (int symbol : message) {
+            writer.write(codes[symbol], lengths[symbol]);
+        }
+        writer.flush();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,36 @@
+package Huffman_Algorithm;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Inputs shared by the tests.
+ */
+final class TestData {
+    private static final String[] WORDS = ("the of and to in is that for it as was with be by on not he this are or "
+            + "huffman code tree node window channel index header payload bits bytes block stream symbol").split(" ");
+
+    private TestData() {
+    }
+
+    // words in a skewed order, so longer symbols repeat too
+    static byte[] text(int length, long seed) {
+        Random random = new Random(seed);
+        byte[] text = new byte[length];
+        int position = 0;
+        while (position < length) {
+            int rank = (int) Math.min(WORDS.length - 1, Math.exp(random.nextDouble() * Math.log(WORDS.length)) - 1);
+            byte[] word = (WORDS[rank] + (random.nextInt(12) == 0 ? "\n" : " ")).getBytes(StandardCharsets.US_ASCII);
+            int count = Math.min(word.length, length - position);
+            System.arraycopy(word, 0, text, position, count);
+            position += count;
+        }
+        return text;
+    }
+
+    static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}
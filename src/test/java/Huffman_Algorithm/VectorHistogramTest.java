@@ -0,0 +1,80 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the counts of the Vector API kernels with symbols counted one at a time, on heap and direct buffers from
+ * unaligned offsets, with runs of one symbol. HistogramTest runs a second time with -Dhuffman.scalarHistogram=true
+ * (see pom.xml), so both kernels are checked against the same counts.
+ */
+class VectorHistogramTest {
+    @Test
+    void testsRunWithTheVectorModule() {
+        // the surefire argLine adds the module, without it Histogram never uses this kernel
+        assertTrue(Histogram.VECTOR);
+    }
+
+    @Test
+    void bytes() {
+        for (ByteBuffer input : inputs()) {
+            for (int offset : new int[]{0, 3}) {
+                long[] direct = new long[256];
+                int[] lanes = new int[8 * 256];
+                int end = VectorHistogram.addBytes(input, offset, input.limit() - 1, direct, lanes);
+                assertTrue(end > input.limit() - 1 - 64 && end <= input.limit() - 1);
+                long[] expected = new long[256];
+                for (int i = offset; i < end; i++) {
+                    expected[input.get(i) & 0xFF]++;
+                }
+                assertArrayEquals(expected, sum(direct, lanes));
+            }
+        }
+    }
+
+    @Test
+    void pairs() {
+        for (ByteBuffer input : inputs()) {
+            for (int offset : new int[]{0, 3}) {
+                long[] direct = new long[65536];
+                int[] lanes = new int[4 * 65536];
+                int end = VectorHistogram.addPairs(input, offset, input.limit() - 1, direct, lanes);
+                assertTrue(end > input.limit() - 1 - 128 && end <= input.limit() - 1);
+                assertTrue((end - offset) % 2 == 0);
+                long[] expected = new long[65536];
+                for (int i = offset; i < end; i += 2) {
+                    expected[(input.get(i) & 0xFF) << 8 | (input.get(i + 1) & 0xFF)]++;
+                }
+                assertArrayEquals(expected, sum(direct, lanes));
+            }
+        }
+    }
+
+    // text, and runs of one byte and of one pair next to random bytes, on the heap and in direct memory
+    private static ByteBuffer[] inputs() {
+        byte[] runs = new byte[100_001];
+        Arrays.fill(runs, 10_000, 40_000, (byte) 'a');
+        for (int i = 40_000; i < 70_000; i += 2) {
+            runs[i] = 'a';
+            runs[i + 1] = 'b';
+        }
+        System.arraycopy(TestData.random(30_000), 0, runs, 70_000, 30_000);
+        byte[] text = TestData.text(100_001, 1);
+        ByteBuffer directRuns = ByteBuffer.allocateDirect(runs.length).put(runs).flip();
+        return new ByteBuffer[]{ByteBuffer.wrap(text), ByteBuffer.wrap(runs), directRuns};
+    }
+
+    // the direct counts plus the counts of every lane
+    private static long[] sum(long[] direct, int[] lanes) {
+        long[] counts = direct.clone();
+        for (int i = 0; i < lanes.length; i++) {
+            counts[i % counts.length] += lanes[i];
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,101 @@
+package Huffman_Algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Writes through the I/O thread in pieces of every size, and checks that a failure of the underlying stream is
+ * thrown to the caller by the next write, flush or close instead of leaving it waiting.
+ */
+class WriteBehindOutputStreamTest {
+    @Test
+    void writesInOrder() throws IOException {
+        byte[] data = TestData.text(100_001, 1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new WriteBehindOutputStream(written, 3, 1000)) {
+            Random random = new Random(1);
+            int offset = 0;
+            while (offset < data.length) {
+                int length = Math.min(random.nextInt(3000), data.length - offset);
+                if (length == 0) {
+                    outputStream.write(data[offset++]);
+                } else {
+                    outputStream.write(data, offset, length);
+                    offset += length;
+                }
+                if (random.nextInt(20) == 0) {
+                    // everything so far has reached the stream
+                    outputStream.flush();
+                    assertArrayEquals(Arrays.copyOf(data, offset), written.toByteArray());
+                }
+            }
+        }
+        assertArrayEquals(data, written.toByteArray());
+    }
+
+    @Test
+    void failureIsThrownByTheNextCall() {
+        IOException diskFull = new IOException("disk full");
+        assertFailure(diskFull, failingStream(diskFull));
+        // unchecked failures too
+        IllegalStateException bug = new IllegalStateException();
+        assertFailure(bug, failingStream(bug));
+    }
+
+    @Test
+    void failureOfTheLastBuffer() {
+        IOException diskFull = new IOException("disk full");
+        OutputStream outputStream = new WriteBehindOutputStream(failingStream(diskFull), 2, 1000);
+        IOException failure = assertThrows(IOException.class, () -> {
+            outputStream.write(new byte[10]);
+            outputStream.close();
+        });
+        assertSame(diskFull, failure.getCause());
+    }
+
+    @Test
+    void atLeastTwoBuffers() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new WriteBehindOutputStream(new ByteArrayOutputStream(), 1, 1000));
+    }
+
+    private static void assertFailure(Throwable cause, OutputStream failing) {
+        OutputStream outputStream = new WriteBehindOutputStream(failing, 3, 1000);
+        IOException failure = assertThrows(IOException.class, () -> {
+            // the writes go on until one of them sees the failure
+            for (int i = 0; i < 1000; i++) {
+                outputStream.write(new byte[700]);
+            }
+        });
+        assertSame(cause, failure.getCause());
+        assertThrows(IOException.class, outputStream::flush);
+        assertThrows(IOException.class, outputStream::close);
+    }
+
+    // a stream whose writes fail with failure
+    private static OutputStream failingStream(Throwable failure) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                throw (RuntimeException) failure;
+            }
+        };
+    }
+}